@@ -0,0 +1,221 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gzip compression with pooled {@link Deflater} and {@link Inflater} instances and buffers. The
+ * gzip header and trailer are written and checked here, so the raw deflate data goes straight
+ * between the message body and the buffer without the copies of the gzip streams. A pooled instance
+ * is only used by one thread at a time; the publishes run on virtual threads, so the instances are
+ * kept in a shared pool instead of per thread.
+ */
+@Component
+public class GzipCodec implements MessageCodec {
+
+  private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0,
+      (byte) 0xff};
+  private static final int TRAILER_SIZE = 8;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+  // A larger size in the trailer is not trusted, the buffer then grows while inflating
+  private static final int MAX_SIZE_HINT = 16 * 1024 * 1024;
+  private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+  // A buffer that was grown for an exceptionally large message is not kept in the pool
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+  private final BlockingDeque<Deflation> deflations;
+  private final BlockingDeque<Inflation> inflations;
+
+  public GzipCodec(PipelineProperties pipelineProperties, RabbitMqProperties rabbitMqProperties) {
+    // Messages are compressed by the publish stage and decompressed by the consumers
+    deflations = new LinkedBlockingDeque<>(pipelineProperties.getPublishConcurrency());
+    inflations = new LinkedBlockingDeque<>(rabbitMqProperties.getMaxConcurrentConsumers());
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return "gzip";
+  }
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length,
+      MessageProperties messageProperties) {
+    var deflation = deflations.pollFirst();
+    if (deflation == null) {
+      deflation = new Deflation();
+    }
+    try {
+      return deflation.compress(data, offset, length);
+    } finally {
+      // When the pool is full the native memory of the deflater is released right away
+      if (!deflations.offerFirst(deflation)) {
+        deflation.deflater.end();
+      }
+    }
+  }
+
+  /**
+   * Bodies with more than one gzip member are decompressed with a {@link GZIPInputStream}.
+   */
+  @Override
+  public byte[] decompress(byte[] body, MessageProperties messageProperties) throws IOException {
+    var inflation = inflations.pollFirst();
+    if (inflation == null) {
+      inflation = new Inflation();
+    }
+    try {
+      return inflation.decompress(body);
+    } catch (DataFormatException e) {
+      throw new ZipException(e.getMessage());
+    } finally {
+      if (!inflations.offerFirst(inflation)) {
+        inflation.inflater.end();
+      }
+    }
+  }
+
+  private static int getHeaderLength(byte[] body) throws ZipException {
+    if (body.length < HEADER.length + TRAILER_SIZE || body[0] != HEADER[0]
+        || body[1] != HEADER[1] || body[2] != HEADER[2]) {
+      throw new ZipException("Not in gzip format");
+    }
+    var flags = body[3];
+    var offset = HEADER.length;
+    if ((flags & FEXTRA) != 0) {
+      offset += 2 + readShort(body, offset);
+    }
+    if ((flags & FNAME) != 0) {
+      offset = skipZeroTerminated(body, offset);
+    }
+    if ((flags & FCOMMENT) != 0) {
+      offset = skipZeroTerminated(body, offset);
+    }
+    if ((flags & FHCRC) != 0) {
+      offset += 2;
+    }
+    if (offset > body.length - TRAILER_SIZE) {
+      throw new ZipException("Truncated gzip header");
+    }
+    return offset;
+  }
+
+  private static int skipZeroTerminated(byte[] body, int offset) throws ZipException {
+    while (offset < body.length) {
+      if (body[offset++] == 0) {
+        return offset;
+      }
+    }
+    throw new ZipException("Truncated gzip header");
+  }
+
+  private static int readShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+  }
+
+  private static int readInt(byte[] bytes, int offset) {
+    return readShort(bytes, offset) | readShort(bytes, offset + 2) << 16;
+  }
+
+  private static void writeInt(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >> 8);
+    bytes[offset + 2] = (byte) (value >> 16);
+    bytes[offset + 3] = (byte) (value >> 24);
+  }
+
+  private static final class Deflation {
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 checksum = new CRC32();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private byte[] compress(byte[] data, int offset, int dataLength) {
+      deflater.reset();
+      checksum.reset();
+      checksum.update(data, offset, dataLength);
+      deflater.setInput(data, offset, dataLength);
+      deflater.finish();
+      System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+      var length = HEADER.length;
+      while (!deflater.finished()) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        length += deflater.deflate(buffer, length, buffer.length - length);
+      }
+      var result = Arrays.copyOf(buffer, length + TRAILER_SIZE);
+      writeInt(result, length, (int) checksum.getValue());
+      writeInt(result, length + 4, dataLength);
+      if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+      return result;
+    }
+
+  }
+
+  private static final class Inflation {
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 checksum = new CRC32();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private byte[] decompress(byte[] body) throws IOException, DataFormatException {
+      var offset = getHeaderLength(body);
+      // The trailer holds the size modulo 2^32, which is exact for any message that fits an array
+      var size = Integer.toUnsignedLong(readInt(body, body.length - 4));
+      // One byte more, the inflater may only see the end of the data when there is room left
+      if (size >= buffer.length && size <= MAX_SIZE_HINT) {
+        buffer = new byte[(int) size + 1];
+      }
+      inflater.reset();
+      inflater.setInput(body, offset, body.length - offset);
+      var length = 0;
+      while (!inflater.finished()) {
+        if (length == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        var inflated = inflater.inflate(buffer, length, buffer.length - length);
+        if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new ZipException("Unexpected end of gzip data");
+        }
+        length += inflated;
+      }
+      if (inflater.getRemaining() != TRAILER_SIZE) {
+        // Concatenated gzip members, rare enough to leave to the stream
+        try (var stream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+          return stream.readAllBytes();
+        }
+      }
+      checksum.reset();
+      checksum.update(buffer, 0, length);
+      if (readInt(body, body.length - TRAILER_SIZE) != (int) checksum.getValue()
+          || readInt(body, body.length - 4) != length) {
+        throw new ZipException("Corrupt gzip trailer");
+      }
+      var result = Arrays.copyOf(buffer, length);
+      if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+      return result;
+    }
+
+  }
+
+}
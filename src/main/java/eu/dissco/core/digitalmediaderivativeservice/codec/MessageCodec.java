@@ -0,0 +1,32 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import java.io.IOException;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Compression of the message bodies, selected by the AMQP content encoding of a message.
+ */
+public interface MessageCodec {
+
+  // Content encoding of the messages compressed with this codec, e.g. gzip
+  String getContentEncoding();
+
+  /**
+   * Compresses a message body, the codec may add the headers it needs for decompression.
+   */
+  default byte[] compress(byte[] data, MessageProperties messageProperties) {
+    return compress(data, 0, data.length, messageProperties);
+  }
+
+  /**
+   * Compresses the message body in a range of the array, which is typically a pooled buffer the
+   * message was serialized into. The array is not referenced after the method returns.
+   */
+  byte[] compress(byte[] data, int offset, int length, MessageProperties messageProperties);
+
+  /**
+   * Decompresses a message body.
+   */
+  byte[] decompress(byte[] body, MessageProperties messageProperties) throws IOException;
+
+}
@@ -0,0 +1,33 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the codec of a content encoding. Messages without a content encoding, or with one that
+ * is not a compression (some producers put the charset there), have no codec.
+ */
+@Component
+public class MessageCodecRegistry {
+
+  private final Map<String, MessageCodec> codecs;
+
+  public MessageCodecRegistry(List<MessageCodec> codecs) {
+    this.codecs = codecs.stream()
+        .collect(Collectors.toMap(codec -> normalize(codec.getContentEncoding()),
+            Function.identity()));
+  }
+
+  private static String normalize(String contentEncoding) {
+    return contentEncoding.strip().toLowerCase(Locale.ROOT);
+  }
+
+  public MessageCodec getCodec(String contentEncoding) {
+    return contentEncoding == null ? null : codecs.get(normalize(contentEncoding));
+  }
+
+}
@@ -0,0 +1,54 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.TreeSet;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Builds a raw content dictionary for zstd from the openDS schemas the service consumes and
+ * publishes: the field names and constant values, in the form in which they appear in the JSON of
+ * the events. The tokens are sorted, so the same schemas always give the same dictionary.
+ */
+final class SchemaDictionary {
+
+  private static final String SCHEMAS = "classpath:json-schema/*.json";
+
+  private SchemaDictionary() {
+  }
+
+  static byte[] build(JsonMapper jsonMapper) throws IOException {
+    var tokens = new TreeSet<String>();
+    for (var resource : new PathMatchingResourcePatternResolver().getResources(SCHEMAS)) {
+      try (var input = resource.getInputStream()) {
+        collect(jsonMapper.readTree(input), tokens);
+      }
+    }
+    return String.join("", tokens).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void collect(JsonNode node, Set<String> tokens) {
+    if (node.isObject()) {
+      var properties = node.get("properties");
+      if (properties != null && properties.isObject()) {
+        properties.propertyNames().forEach(name -> tokens.add('"' + name + "\":"));
+      }
+      addValue(node.get("const"), tokens);
+      var values = node.get("enum");
+      if (values != null) {
+        values.values().forEach(value -> addValue(value, tokens));
+      }
+    }
+    node.values().forEach(child -> collect(child, tokens));
+  }
+
+  private static void addValue(JsonNode value, Set<String> tokens) {
+    if (value != null && value.isString()) {
+      tokens.add('"' + value.stringValue() + '"');
+    }
+  }
+
+}
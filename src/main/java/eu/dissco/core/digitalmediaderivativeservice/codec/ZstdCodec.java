@@ -0,0 +1,191 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Zstandard compression with pooled contexts. The messages can be compressed with a dictionary of
+ * the field names of the openDS schemas, which helps most for small messages as they have little
+ * repetition of their own. A raw content dictionary has no id in the zstd frame, so the id of the
+ * dictionary is sent in a header: a consumer that was built with other schemas rejects the message
+ * instead of decoding it wrongly.
+ */
+@Slf4j
+@Component
+public class ZstdCodec implements MessageCodec {
+
+  public static final String DICTIONARY_HEADER = "x-zstd-dictionary";
+  private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+  // A larger content size in the frame is not trusted, the message is then decompressed as stream
+  private static final int MAX_SIZE_HINT = 16 * 1024 * 1024;
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+  private final int level;
+  private final boolean useDictionary;
+  private final String dictionaryId;
+  private final ZstdDictCompress compressDictionary;
+  private final ZstdDictDecompress decompressDictionary;
+  private final BlockingDeque<Compression> compressions;
+  private final BlockingDeque<Decompression> decompressions;
+
+  public ZstdCodec(MessageCompressionProperties properties,
+      PipelineProperties pipelineProperties, RabbitMqProperties rabbitMqProperties,
+      JsonMapper jsonMapper) throws IOException {
+    level = properties.getZstdLevel();
+    useDictionary = properties.isZstdDictionary();
+    // Also built when it is not used for publishing, to decompress messages of other producers
+    var dictionary = SchemaDictionary.build(jsonMapper);
+    var checksum = new CRC32();
+    checksum.update(dictionary);
+    dictionaryId = Long.toHexString(checksum.getValue());
+    compressDictionary = new ZstdDictCompress(dictionary, level);
+    decompressDictionary = new ZstdDictDecompress(dictionary);
+    compressions = new LinkedBlockingDeque<>(pipelineProperties.getPublishConcurrency());
+    decompressions = new LinkedBlockingDeque<>(rabbitMqProperties.getMaxConcurrentConsumers());
+    log.info("Built zstd dictionary {} of {} bytes from the json schemas", dictionaryId,
+        dictionary.length);
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return "zstd";
+  }
+
+  @Override
+  public byte[] compress(byte[] data, int offset, int length,
+      MessageProperties messageProperties) {
+    var compression = compressions.pollFirst();
+    if (compression == null) {
+      // The checksum detects corrupted messages, as the CRC of gzip does
+      compression = new Compression(new ZstdCompressCtx().setLevel(level).setChecksum(true));
+      if (useDictionary) {
+        compression.context.loadDict(compressDictionary);
+      }
+    }
+    try {
+      if (useDictionary) {
+        messageProperties.setHeader(DICTIONARY_HEADER, dictionaryId);
+      }
+      return compression.compress(data, offset, length);
+    } finally {
+      // When the pool is full the native memory of the context is released right away
+      if (!compressions.offerFirst(compression)) {
+        compression.context.close();
+      }
+    }
+  }
+
+  @Override
+  public byte[] decompress(byte[] body, MessageProperties messageProperties) throws IOException {
+    var dictionary = messageProperties.getHeader(DICTIONARY_HEADER);
+    if (dictionary != null && !dictionaryId.equals(dictionary.toString())) {
+      throw new IOException("Message was compressed with unknown zstd dictionary " + dictionary);
+    }
+    var size = getFrameContentSize(body);
+    if (size < 0 || size > MAX_SIZE_HINT) {
+      return decompressStream(body, dictionary != null);
+    }
+    var decompression = decompressions.pollFirst();
+    if (decompression == null) {
+      decompression = new Decompression();
+    }
+    try {
+      return decompression.decompress(body, (int) size,
+          dictionary != null ? decompressDictionary : null);
+    } catch (ZstdException e) {
+      throw new IOException("Failed to decompress zstd message", e);
+    } finally {
+      if (!decompressions.offerFirst(decompression)) {
+        decompression.context.close();
+      }
+    }
+  }
+
+  private static long getFrameContentSize(byte[] body) {
+    try {
+      return Zstd.getFrameContentSize(body);
+    } catch (ZstdException e) {
+      // The size is unknown or the frame is corrupt, which the stream reports
+      return -1;
+    }
+  }
+
+  // Frames without the content size, which streaming compressors write
+  private byte[] decompressStream(byte[] body, boolean withDictionary) throws IOException {
+    try (var stream = new ZstdInputStream(new ByteArrayInputStream(body))) {
+      if (withDictionary) {
+        stream.setDict(decompressDictionary);
+      }
+      return stream.readAllBytes();
+    } catch (ZstdException e) {
+      throw new IOException("Failed to decompress zstd message", e);
+    }
+  }
+
+  private static final class Compression {
+
+    private final ZstdCompressCtx context;
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private Compression(ZstdCompressCtx context) {
+      this.context = context;
+    }
+
+    private byte[] compress(byte[] data, int offset, int length) {
+      var bound = (int) Zstd.compressBound(length);
+      if (bound > buffer.length) {
+        buffer = new byte[bound];
+      }
+      var compressed = context.compressByteArray(buffer, 0, buffer.length, data, offset, length);
+      var result = Arrays.copyOf(buffer, compressed);
+      if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+      return result;
+    }
+
+  }
+
+  private static final class Decompression {
+
+    private final ZstdDecompressCtx context = new ZstdDecompressCtx();
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    private byte[] decompress(byte[] body, int size, ZstdDictDecompress dictionary) {
+      // Resetting the context also unloads the dictionary of the previous message
+      context.reset();
+      if (dictionary != null) {
+        context.loadDict(dictionary);
+      }
+      if (size > buffer.length) {
+        buffer = new byte[size];
+      }
+      var length = context.decompressByteArray(buffer, 0, buffer.length, body, 0, body.length);
+      var result = Arrays.copyOf(buffer, length);
+      if (buffer.length > MAX_RETAINED_BUFFER_SIZE) {
+        buffer = new byte[INITIAL_BUFFER_SIZE];
+      }
+      return result;
+    }
+
+  }
+
+}
@@ -0,0 +1,79 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings. A key that was added is always reported as possibly present, a key
+ * that was not is reported as absent except for the configured share of false positives. The bits
+ * are set with compare-and-set, so keys can be added and looked up concurrently without locking.
+ */
+class BloomFilter {
+
+  private final AtomicLongArray words;
+  private final long bits;
+  private final int hashes;
+
+  BloomFilter(int expectedKeys, double falsePositiveRate) {
+    var optimalBits = Math.ceil(-expectedKeys * Math.log(falsePositiveRate)
+        / (Math.log(2) * Math.log(2)));
+    this.words = new AtomicLongArray((int) Math.ceil(optimalBits / Long.SIZE));
+    this.bits = (long) words.length() * Long.SIZE;
+    this.hashes = Math.max(1, (int) Math.round((double) bits / expectedKeys * Math.log(2)));
+  }
+
+  void put(String key) {
+    var hash = hash(key);
+    var increment = increment(hash);
+    for (int i = 0; i < hashes; i++) {
+      setBit(Math.floorMod(hash + i * increment, bits));
+    }
+  }
+
+  boolean mightContain(String key) {
+    var hash = hash(key);
+    var increment = increment(hash);
+    for (int i = 0; i < hashes; i++) {
+      var bit = Math.floorMod(hash + i * increment, bits);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void setBit(long bit) {
+    var index = (int) (bit >>> 6);
+    var mask = 1L << bit;
+    long word;
+    do {
+      word = words.get(index);
+      if ((word & mask) != 0) {
+        return;
+      }
+    } while (!words.compareAndSet(index, word, word | mask));
+  }
+
+  /*
+   * The positions are derived from two hashes of the key (Kirsch and Mitzenmacher), the second is
+   * odd so it never repeats a position before all others have been visited.
+   */
+  private static long hash(String key) {
+    // FNV-1a over the chars, finished with the mix of SplitMix64 to spread the low bits
+    var hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      hash = (hash ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  private static long increment(long hash) {
+    return mix(hash ^ 0x9e3779b97f4a7c15L) | 1;
+  }
+
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+
+}
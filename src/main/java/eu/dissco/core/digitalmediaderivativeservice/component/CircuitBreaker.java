@@ -0,0 +1,71 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.CircuitBreakerProperties;
+
+/**
+ * Circuit breaker of a single image server. After a number of consecutive failures the circuit
+ * opens and requests fail without touching the network. Once the open duration has passed a
+ * limited number of trial requests is let through (half-open): the circuit closes when a trial
+ * succeeds and opens again when it fails. Not thread-safe, the {@link HostScheduler} guards it
+ * together with the other state of the host.
+ */
+class CircuitBreaker {
+
+  private final CircuitBreakerProperties properties;
+  private State state = State.CLOSED;
+  private int failures;
+  private long openUntil;
+  private int trials;
+
+  CircuitBreaker(CircuitBreakerProperties properties) {
+    this.properties = properties;
+  }
+
+  /**
+   * Returns whether a request may be sent, a request in the half-open state is a trial.
+   */
+  boolean tryAcquire(long now) {
+    if (state == State.OPEN) {
+      if (now - openUntil < 0) {
+        return false;
+      }
+      state = State.HALF_OPEN;
+      trials = 0;
+    }
+    if (state == State.HALF_OPEN) {
+      if (trials >= properties.getHalfOpenRequests()) {
+        return false;
+      }
+      trials++;
+    }
+    return true;
+  }
+
+  boolean isOpen(long now) {
+    return state == State.OPEN && now - openUntil < 0;
+  }
+
+  void onSuccess() {
+    state = State.CLOSED;
+    failures = 0;
+  }
+
+  void onFailure(long now) {
+    failures++;
+    if (state == State.HALF_OPEN || failures >= properties.getFailureThreshold()) {
+      state = State.OPEN;
+      openUntil = now + properties.getOpenDuration().toNanos();
+    }
+  }
+
+  State getState() {
+    return state;
+  }
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+}
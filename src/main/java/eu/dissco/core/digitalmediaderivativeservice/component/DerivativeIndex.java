@@ -0,0 +1,90 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeIndexProperties;
+import eu.dissco.core.digitalmediaderivativeservice.repository.S3Repository;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a Bloom filter of the keys in the bucket, so the media of which a derivative is definitely
+ * not stored are processed without asking S3. The filter is filled from a listing of the bucket at
+ * startup and with the keys of every successful upload. A possible hit still has to be confirmed in
+ * S3; until the listing has finished, every media is a possible hit.
+ */
+@Slf4j
+@Component
+public class DerivativeIndex {
+
+  private final DerivativeIndexProperties properties;
+  private final ApplicationProperties applicationProperties;
+  private final S3Repository s3Repository;
+  private final BloomFilter filter;
+  private volatile boolean warm;
+
+  public DerivativeIndex(DerivativeIndexProperties properties,
+      ApplicationProperties applicationProperties, S3Repository s3Repository) {
+    this.properties = properties;
+    this.applicationProperties = applicationProperties;
+    this.s3Repository = s3Repository;
+    this.filter = properties.isEnabled()
+        ? new BloomFilter(properties.getExpectedKeys(), properties.getFalsePositiveRate())
+        : null;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUp() {
+    if (filter == null) {
+      return;
+    }
+    log.info("Listing the keys of the bucket for the derivative index");
+    var start = System.nanoTime();
+    var keys = new LongAdder();
+    s3Repository.listKeys(key -> {
+      filter.put(key);
+      keys.increment();
+    }).whenComplete((result, throwable) -> {
+      if (throwable == null) {
+        warm = true;
+        log.info("Derivative index contains {} keys, listed in {} ms", keys.sum(),
+            (System.nanoTime() - start) / 1_000_000);
+      } else {
+        // Without the complete listing an absent key can not be told apart from an unlisted one
+        log.error("Failed to list the keys of the bucket, derivatives are looked up in S3",
+            throwable);
+      }
+    });
+  }
+
+  /**
+   * @return false when a derivative of the media is definitely not stored, or the index is
+   * disabled or forced; true when all derivatives might be stored
+   */
+  public boolean mightHaveDerivatives(String doi) {
+    if (filter == null || properties.isForce()) {
+      return false;
+    }
+    if (!warm) {
+      return true;
+    }
+    for (var profile : applicationProperties.getDerivativeProfiles()) {
+      if (!filter.mightContain(s3Repository.getKey(doi, profile))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public void addDerivatives(String doi) {
+    if (filter == null) {
+      return;
+    }
+    for (var profile : applicationProperties.getDerivativeProfiles()) {
+      filter.put(s3Repository.getKey(doi, profile));
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+
+/**
+ * Growable in-memory output stream which computes the CRC32C checksum of the written bytes while
+ * they are written. Unlike a {@link java.io.ByteArrayOutputStream} the content can be handed out
+ * without copying it, so a buffer must not be reused before the consumer of
+ * {@link #toByteBuffer()} is done with it.
+ */
+public class EncodeBuffer extends OutputStream {
+
+  private final CRC32C checksum = new CRC32C();
+  private byte[] buffer;
+  private int count;
+
+  EncodeBuffer(int capacity) {
+    buffer = new byte[capacity];
+  }
+
+  void reset(int capacity) {
+    count = 0;
+    checksum.reset();
+    ensureCapacity(capacity);
+  }
+
+  int capacity() {
+    return buffer.length;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+    }
+  }
+
+  @Override
+  public void write(int b) {
+    ensureCapacity(count + 1);
+    buffer[count++] = (byte) b;
+    checksum.update(b);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) {
+    ensureCapacity(count + length);
+    System.arraycopy(bytes, offset, buffer, count, length);
+    checksum.update(bytes, offset, length);
+    count += length;
+  }
+
+  public int size() {
+    return count;
+  }
+
+  public ByteBuffer toByteBuffer() {
+    return ByteBuffer.wrap(buffer, 0, count).asReadOnlyBuffer();
+  }
+
+  // Base64 encoded big-endian CRC32C, the format S3 expects in the x-amz-checksum-crc32c header
+  public String getChecksum() {
+    var value = (int) checksum.getValue();
+    return Base64.getEncoder().encodeToString(ByteBuffer.allocate(Integer.BYTES)
+        .putInt(value).array());
+  }
+
+}
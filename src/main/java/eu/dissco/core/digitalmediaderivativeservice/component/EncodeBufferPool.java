@@ -0,0 +1,77 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.component.RasterPool.POOL_REQUESTS;
+import static eu.dissco.core.digitalmediaderivativeservice.component.RasterPool.POOL_RETAINED;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the buffers the derivatives are encoded into, so they do not have to be reallocated (and
+ * grown) for every image. A buffer is taken when an image is encoded and only returned when the
+ * upload of its content has completed.
+ */
+@Component
+public class EncodeBufferPool {
+
+  private final BlockingDeque<EncodeBuffer> buffers;
+  private final long idleTimeout;
+  private final Counter hits;
+  private final Counter misses;
+  private volatile long lastUsed = System.nanoTime();
+
+  public EncodeBufferPool(ApplicationProperties properties,
+      PipelineProperties pipelineProperties, BufferPoolProperties bufferPoolProperties,
+      MeterRegistry meterRegistry) {
+    // Enough to encode all profiles of every message that is transformed in parallel
+    buffers = new LinkedBlockingDeque<>(
+        pipelineProperties.getTransformThreads() * properties.getDerivativeProfiles().size());
+    idleTimeout = bufferPoolProperties.getIdleTimeout().toNanos();
+    hits = Counter.builder(POOL_REQUESTS).tag("pool", "encode").tag("result", "hit")
+        .register(meterRegistry);
+    misses = Counter.builder(POOL_REQUESTS).tag("pool", "encode").tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder(POOL_RETAINED, this, EncodeBufferPool::getRetainedBytes).tag("pool", "encode")
+        .baseUnit("bytes").register(meterRegistry);
+  }
+
+  public EncodeBuffer acquire(int expectedSize) {
+    lastUsed = System.nanoTime();
+    var buffer = buffers.pollFirst();
+    if (buffer == null) {
+      misses.increment();
+      return new EncodeBuffer(expectedSize);
+    }
+    hits.increment();
+    buffer.reset(expectedSize);
+    return buffer;
+  }
+
+  public void release(EncodeBuffer buffer) {
+    // When the pool is full the buffer is left to the garbage collector
+    buffers.offerFirst(buffer);
+  }
+
+  long getRetainedBytes() {
+    return buffers.stream().mapToLong(EncodeBuffer::capacity).sum();
+  }
+
+  /**
+   * Releases all buffers when none has been used within the idle timeout.
+   */
+  @Scheduled(fixedDelayString = "${buffer-pool.idle-timeout:5m}")
+  public void trim() {
+    if (System.nanoTime() - lastUsed > idleTimeout) {
+      buffers.clear();
+    }
+  }
+
+}
@@ -0,0 +1,95 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.HeapBudgetProperties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the memory used by images that are decoded at the same time. Every decode reserves its
+ * estimated size from a global budget first and waits when the budget is exhausted, so a few
+ * huge images can not exhaust the heap while many small images are processed in parallel.
+ */
+@Slf4j
+@Component
+public class HeapBudgetComponent {
+
+  // Permits are kilobytes, so budgets beyond 2GB fit in the int permits of the semaphore
+  private static final long PERMIT_SIZE = 1024;
+
+  private final HeapBudgetProperties properties;
+  private final Semaphore budget;
+  private final int totalPermits;
+
+  public HeapBudgetComponent(HeapBudgetProperties properties) {
+    this.properties = properties;
+    var size = properties.getSize() != null ? properties.getSize().toBytes()
+        : (long) (Runtime.getRuntime().maxMemory() * properties.getMaxHeapFraction());
+    this.totalPermits = (int) Math.min(Integer.MAX_VALUE, size / PERMIT_SIZE);
+    // Fair, so a large reservation is not starved by a stream of small ones
+    this.budget = new Semaphore(totalPermits, true);
+    log.info("Heap budget for decoding images is {} MB", size / (1024 * 1024));
+  }
+
+  public void checkPixels(int width, int height) throws ImageRejectedException {
+    var pixels = (long) width * height;
+    if (pixels > properties.getMaxPixels()) {
+      log.warn("Image of {}x{} pixels exceeds the maximum of {} pixels", width, height,
+          properties.getMaxPixels());
+      throw new ImageRejectedException(
+          "Image of " + width + "x" + height + " pixels exceeds the maximum of "
+              + properties.getMaxPixels() + " pixels");
+    }
+  }
+
+  /**
+   * Reserves the working memory for a decoded raster of the given size, blocking until enough of
+   * the budget is available. A reservation larger than the complete budget waits until it has the
+   * budget to itself.
+   */
+  public Reservation reserve(long rasterBytes) throws ProcessingFailedException {
+    var bytes = (long) (rasterBytes * properties.getWorkingMemoryFactor());
+    var permits = (int) Math.min(totalPermits, Math.max(1, bytes / PERMIT_SIZE));
+    try {
+      if (!budget.tryAcquire(permits, 0, TimeUnit.MILLISECONDS)) {
+        log.debug("Waiting for {} KB of the heap budget", permits);
+        if (!budget.tryAcquire(permits, properties.getAcquireTimeout().toMillis(),
+            TimeUnit.MILLISECONDS)) {
+          throw new ProcessingFailedException(
+              "Timed out waiting for " + bytes + " bytes of the heap budget");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessingFailedException("Interrupted while waiting for the heap budget");
+    }
+    return new Reservation(permits);
+  }
+
+  public int getAvailableKilobytes() {
+    return budget.availablePermits();
+  }
+
+  public final class Reservation implements AutoCloseable {
+
+    private final int permits;
+    private boolean released;
+
+    private Reservation(int permits) {
+      this.permits = permits;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        budget.release(permits);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,236 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostThrottledException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostUnavailableException;
+import eu.dissco.core.digitalmediaderivativeservice.property.CircuitBreakerProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.HostLimits;
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the requests to every image server within the limits of that host: a maximum number of
+ * concurrent requests and of requests per second. Fetches for a host that is at its limits wait in
+ * a queue of that host instead of taking up the workers of the fetch stage, so the other hosts are
+ * not held up. A host that answers with 429 or 503 gets no new requests until its Retry-After has
+ * passed, and a host that keeps failing gets its circuit opened: its fetches then fail without
+ * touching the network until the {@link CircuitBreaker} lets a trial request through.
+ */
+@Slf4j
+@Component
+public class HostScheduler {
+
+  public static final String FETCH_DEFERRED = "media.fetch.deferred";
+  public static final String CIRCUIT_REJECTED = "media.fetch.circuit.rejected";
+
+  private final ImageFetchProperties properties;
+  private final CircuitBreakerProperties circuitBreakerProperties;
+  private final Counter rejected;
+  // The hosts are never removed, the media come from a limited number of image servers
+  private final Map<String, Host> hosts = new ConcurrentHashMap<>();
+  private final AtomicInteger deferred = new AtomicInteger();
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("host-scheduler").daemon().factory());
+
+  public HostScheduler(ImageFetchProperties properties,
+      CircuitBreakerProperties circuitBreakerProperties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.circuitBreakerProperties = circuitBreakerProperties;
+    Gauge.builder(FETCH_DEFERRED, deferred, AtomicInteger::get).register(meterRegistry);
+    this.rejected = Counter.builder(CIRCUIT_REJECTED).register(meterRegistry);
+  }
+
+  /**
+   * Starts the fetch as soon as the host of the URI is within its limits. The fetch is started on
+   * the calling thread or on a virtual thread once an earlier fetch of the host has completed, so
+   * it should only hand the work to the fetch stage.
+   *
+   * @param uri   the URI that will be fetched
+   * @param fetch starts the fetch, the returned future completes when the host has responded
+   * @return a future with the result of the fetch
+   */
+  public <T> CompletableFuture<T> schedule(URI uri, Supplier<CompletableFuture<T>> fetch) {
+    var name = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+    var host = hosts.computeIfAbsent(name, key -> new Host(key, properties.getHostLimits(key),
+        new CircuitBreaker(circuitBreakerProperties)));
+    var pending = new PendingFetch<>(fetch, new CompletableFuture<T>());
+    synchronized (host) {
+      // The trial request of a half-open circuit is only taken when a fetch is started
+      if (host.breaker.isOpen(System.nanoTime())) {
+        rejected.increment();
+        return CompletableFuture.failedFuture(circuitOpen(host));
+      }
+      deferred.incrementAndGet();
+      host.queue.add(pending);
+    }
+    dispatch(host);
+    return pending.result();
+  }
+
+  private static HostUnavailableException circuitOpen(Host host) {
+    return new HostUnavailableException("Circuit of host " + host.name + " is open");
+  }
+
+  private void dispatch(Host host) {
+    failQueuedWhileOpen(host);
+    PendingFetch<?> next;
+    while ((next = poll(host)) != null) {
+      deferred.decrementAndGet();
+      start(host, next);
+    }
+  }
+
+  private PendingFetch<?> poll(Host host) {
+    synchronized (host) {
+      if (host.queue.isEmpty() || host.inFlight >= host.limits.getMaxConcurrentRequests()) {
+        return null;
+      }
+      var now = System.nanoTime();
+      var wait = Math.max(host.pausedUntil, host.nextPermit) - now;
+      if (wait > 0) {
+        if (!host.wakeUpScheduled) {
+          host.wakeUpScheduled = true;
+          // The fetch can block while the fetch stage is full, which should not hold up the timer
+          timer.schedule(() -> Thread.startVirtualThread(() -> wakeUp(host)), wait,
+              TimeUnit.NANOSECONDS);
+        }
+        return null;
+      }
+      // A fetch that is not let through waits for the trial in progress, or is failed once the
+      // circuit has opened again
+      if (!host.breaker.tryAcquire(now)) {
+        return null;
+      }
+      host.inFlight++;
+      host.nextPermit = Math.max(host.nextPermit, now) + host.permitInterval;
+      return host.queue.poll();
+    }
+  }
+
+  // Fetches that were queued before the circuit opened would most likely fail as well
+  private void failQueuedWhileOpen(Host host) {
+    List<PendingFetch<?>> failed;
+    synchronized (host) {
+      if (host.queue.isEmpty() || !host.breaker.isOpen(System.nanoTime())) {
+        return;
+      }
+      failed = new ArrayList<>(host.queue);
+      host.queue.clear();
+    }
+    deferred.addAndGet(-failed.size());
+    rejected.increment(failed.size());
+    for (var pending : failed) {
+      pending.result().completeExceptionally(circuitOpen(host));
+    }
+  }
+
+  private void wakeUp(Host host) {
+    synchronized (host) {
+      host.wakeUpScheduled = false;
+    }
+    dispatch(host);
+  }
+
+  private <T> void start(Host host, PendingFetch<T> pending) {
+    CompletableFuture<T> started;
+    try {
+      started = pending.fetch().get();
+    } catch (RuntimeException e) {
+      started = CompletableFuture.failedFuture(e);
+    }
+    started.whenComplete((result, throwable) -> {
+      completed(host, throwable);
+      if (throwable != null) {
+        pending.result().completeExceptionally(throwable);
+      } else {
+        pending.result().complete(result);
+      }
+      // This runs on a worker of the fetch stage, which must not block submitting the next fetch
+      // into its own stage: when all workers do, the queued fetches are never run
+      if (hasQueued(host)) {
+        Thread.startVirtualThread(() -> dispatch(host));
+      }
+    });
+  }
+
+  private boolean hasQueued(Host host) {
+    synchronized (host) {
+      return !host.queue.isEmpty();
+    }
+  }
+
+  private void completed(Host host, Throwable throwable) {
+    var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+    synchronized (host) {
+      host.inFlight--;
+      // Any response of the host, including an error status, shows that it is up
+      if (cause instanceof HostUnavailableException) {
+        var wasOpen = host.breaker.getState() == CircuitBreaker.State.OPEN;
+        host.breaker.onFailure(System.nanoTime());
+        if (!wasOpen && host.breaker.getState() == CircuitBreaker.State.OPEN) {
+          log.warn("Opened the circuit of host {} after repeated failures", host.name);
+        }
+      } else {
+        host.breaker.onSuccess();
+      }
+      if (cause instanceof HostThrottledException e) {
+        var backoff = e.getRetryAfter() != null ? e.getRetryAfter()
+            : properties.getThrottleBackoff();
+        log.warn("Host {} is throttling requests, pausing it for {}", host.name, backoff);
+        host.pausedUntil = Math.max(host.pausedUntil, System.nanoTime() + backoff.toNanos());
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    timer.shutdownNow();
+  }
+
+  private static final class Host {
+
+    private final String name;
+    private final HostLimits limits;
+    private final CircuitBreaker breaker;
+    private final long permitInterval;
+    private final Queue<PendingFetch<?>> queue = new ArrayDeque<>();
+    private int inFlight;
+    private long nextPermit = System.nanoTime();
+    private long pausedUntil = System.nanoTime();
+    private boolean wakeUpScheduled;
+
+    private Host(String name, HostLimits limits, CircuitBreaker breaker) {
+      this.name = name;
+      this.limits = limits;
+      this.breaker = breaker;
+      this.permitInterval = (long) (TimeUnit.SECONDS.toNanos(1) / limits.getRequestsPerSecond());
+    }
+
+  }
+
+  private record PendingFetch<T>(
+      Supplier<CompletableFuture<T>> fetch,
+      CompletableFuture<T> result) {
+
+  }
+
+}
@@ -0,0 +1,224 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.DecodedImage;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataFormatImpl;
+import javax.imageio.stream.ImageInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageDecoderComponent {
+
+  public static final String JPEG_MIME_TYPE = "image/jpeg";
+  // Used when the reader can not tell, enough for 8-bit RGBA
+  private static final int DEFAULT_BYTES_PER_PIXEL = 4;
+
+  private final ApplicationProperties properties;
+
+  /**
+   * Reads the format and dimensions of the image in the given file, without decoding the pixels.
+   *
+   * @param file the spooled original image
+   * @return the header of the image, or null when no reader is available for the image format
+   */
+  public ImageHeader readHeader(Path file) throws IOException {
+    try (var input = ImageIO.createImageInputStream(file.toFile())) {
+      if (input == null) {
+        return null;
+      }
+      var readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        return null;
+      }
+      var reader = readers.next();
+      try {
+        reader.setInput(input, true, false);
+        var mimeType = reader.getOriginatingProvider().getMIMETypes()[0];
+        var colorSpace = JPEG_MIME_TYPE.equals(mimeType) ? readColorSpace(reader) : null;
+        return new ImageHeader(mimeType, reader.getWidth(0), reader.getHeight(0),
+            readBytesPerPixel(reader), colorSpace);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static int readBytesPerPixel(ImageReader reader) {
+    try {
+      var imageType = reader.getRawImageType(0);
+      if (imageType != null) {
+        var sampleSizes = imageType.getSampleModel().getSampleSize();
+        var bits = 0;
+        for (var sampleSize : sampleSizes) {
+          bits += sampleSize;
+        }
+        // Most readers convert to at least a byte per band
+        return Math.max(sampleSizes.length, (bits + 7) / 8);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      log.debug("Unable to determine the image type of the image", e);
+    }
+    return DEFAULT_BYTES_PER_PIXEL;
+  }
+
+  /**
+   * Estimates the size of the raster {@link #decode(Path, float)} produces, based on the header
+   * only.
+   */
+  public long estimateRasterBytes(ImageHeader header, float maxOutputSize) {
+    var dimension = getDecodedDimension(header, maxOutputSize);
+    return (long) dimension.width * dimension.height * header.bytesPerPixel();
+  }
+
+  /**
+   * The dimensions of the image {@link #decode(Path, float)} and
+   * {@link #decodeStrips(Path, float, long, Consumer)} produce, after subsampling.
+   */
+  public Dimension getDecodedDimension(ImageHeader header, float maxOutputSize) {
+    var subsampling = getSubsamplingFactor(header.width(), header.height(), maxOutputSize);
+    return new Dimension((header.width() + subsampling - 1) / subsampling,
+        (header.height() + subsampling - 1) / subsampling);
+  }
+
+  /*
+   * For JPEG the metadata only covers the markers before the first scan, so reading it does not
+   * decode the image.
+   */
+  private static String readColorSpace(ImageReader reader) {
+    try {
+      var metadata = reader.getImageMetadata(0);
+      if (metadata == null || !metadata.isStandardMetadataFormatSupported()) {
+        return null;
+      }
+      var chroma = metadata.getAsTree(IIOMetadataFormatImpl.standardMetadataFormatName)
+          .getFirstChild();
+      for (; chroma != null; chroma = chroma.getNextSibling()) {
+        if ("Chroma".equals(chroma.getNodeName())) {
+          for (var node = chroma.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if ("ColorSpaceType".equals(node.getNodeName())) {
+              return node.getAttributes().getNamedItem("name").getNodeValue();
+            }
+          }
+        }
+      }
+      return null;
+    } catch (IOException e) {
+      log.debug("Unable to read the metadata of the image", e);
+      return null;
+    }
+  }
+
+  /**
+   * Decodes the image in the given file. The header is read first, so the image can be subsampled
+   * while decoding when it is much larger than the largest requested output.
+   *
+   * @param file          the spooled original image
+   * @param maxOutputSize the longest side of the largest output that will be generated
+   * @return the decoded image together with the dimensions of the original, or null when no
+   * reader is available for the image format
+   */
+  public DecodedImage decode(Path file, float maxOutputSize) throws IOException {
+    try (var input = ImageIO.createImageInputStream(file.toFile())) {
+      return decode(input, maxOutputSize);
+    }
+  }
+
+  public DecodedImage decode(ImageInputStream input, float maxOutputSize) throws IOException {
+    if (input == null) {
+      return null;
+    }
+    var readers = ImageIO.getImageReaders(input);
+    if (!readers.hasNext()) {
+      return null;
+    }
+    var reader = readers.next();
+    try {
+      reader.setInput(input, true, true);
+      var width = reader.getWidth(0);
+      var height = reader.getHeight(0);
+      var subsampling = getSubsamplingFactor(width, height, maxOutputSize);
+      var image = read(reader, subsampling);
+      return new DecodedImage(image, width, height);
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  /**
+   * Decodes the image in horizontal strips from top to bottom, so only a single strip is in memory
+   * at a time. The strips are subsampled in the same way as {@link #decode(Path, float)}, together
+   * they form the same image.
+   *
+   * @param file          the spooled original image
+   * @param maxOutputSize the longest side of the largest output that will be generated
+   * @param stripBytes    the approximate size of the raster of a single decoded strip
+   * @param consumer      receives the decoded strips in order
+   * @return false when no reader is available for the image format
+   */
+  public boolean decodeStrips(Path file, float maxOutputSize, long stripBytes,
+      Consumer<BufferedImage> consumer) throws IOException {
+    try (var input = ImageIO.createImageInputStream(file.toFile())) {
+      if (input == null) {
+        return false;
+      }
+      var readers = ImageIO.getImageReaders(input);
+      if (!readers.hasNext()) {
+        return false;
+      }
+      var reader = readers.next();
+      try {
+        // Every strip is a separate read, so the reader has to be able to seek back
+        reader.setInput(input, false, true);
+        var width = reader.getWidth(0);
+        var height = reader.getHeight(0);
+        var subsampling = getSubsamplingFactor(width, height, maxOutputSize);
+        var rowBytes = (long) ((width + subsampling - 1) / subsampling) * DEFAULT_BYTES_PER_PIXEL;
+        // A strip starts at a multiple of the subsampling factor, to select the same rows as a
+        // single read would
+        var sourceRows = (int) Math.min(height,
+            Math.max(1, stripBytes / rowBytes) * subsampling);
+        log.debug("Decoding image in strips of {} rows with a subsampling factor of {}",
+            sourceRows, subsampling);
+        var param = reader.getDefaultReadParam();
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        for (int y = 0; y < height; y += sourceRows) {
+          param.setSourceRegion(new Rectangle(0, y, width, Math.min(sourceRows, height - y)));
+          consumer.accept(reader.read(0, param));
+        }
+        return true;
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  private static BufferedImage read(ImageReader reader, int subsampling)
+      throws IOException {
+    var param = reader.getDefaultReadParam();
+    if (subsampling > 1) {
+      log.debug("Decoding image with a subsampling factor of {}", subsampling);
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+    }
+    return reader.read(0, param);
+  }
+
+  int getSubsamplingFactor(int width, int height, float maxOutputSize) {
+    var longestSide = Math.max(width, height);
+    var minimalDecodedSize = maxOutputSize * properties.getDecodeOversamplingFactor();
+    return Math.max(1, (int) (longestSide / minimalDecodedSize));
+  }
+
+}
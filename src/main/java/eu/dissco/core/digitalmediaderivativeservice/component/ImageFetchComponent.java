@@ -0,0 +1,183 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.FetchedImage;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostThrottledException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostUnavailableException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageNotFoundException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ImageFetchComponent {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int NOT_FOUND = 404;
+  private static final int GONE = 410;
+  private static final int TOO_MANY_REQUESTS = 429;
+  private static final int SERVICE_UNAVAILABLE = 503;
+
+  private final HttpClient httpClient;
+  private final ImageFetchProperties properties;
+  private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("image-fetch-watchdog").daemon().factory());
+
+  /**
+   * Downloads the image to a spool file. The download is aborted when the server does not respond
+   * within the read timeout, when the complete download takes longer than the total timeout or
+   * when the body exceeds the maximum size. The caller is responsible for closing the result, which
+   * removes the spool file.
+   */
+  public FetchedImage fetch(URI uri) throws ProcessingFailedException {
+    var request = HttpRequest.newBuilder(uri)
+        .timeout(properties.getReadTimeout())
+        .header("User-Agent", properties.getUserAgent())
+        .GET()
+        .build();
+    try {
+      var response = httpClient.send(request, BodyHandlers.ofInputStream());
+      try (var body = response.body()) {
+        checkResponse(uri, response);
+        return spool(uri, response, body);
+      }
+    } catch (IOException e) {
+      log.error("Failed to fetch image from: {}", uri, e);
+      throw new HostUnavailableException("Failed to fetch image from: " + uri);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.error("Thread interrupted while fetching image from: {}", uri, e);
+      throw new ProcessingFailedException("Interrupted while fetching image from: " + uri);
+    }
+  }
+
+  private void checkResponse(URI uri, HttpResponse<InputStream> response)
+      throws ProcessingFailedException {
+    if (response.statusCode() == TOO_MANY_REQUESTS
+        || response.statusCode() == SERVICE_UNAVAILABLE) {
+      log.warn("Received status code {} when fetching image from: {}", response.statusCode(),
+          uri);
+      throw new HostThrottledException(
+          "Received status code " + response.statusCode() + " when fetching image from: " + uri,
+          getRetryAfter(response));
+    }
+    if (response.statusCode() == NOT_FOUND || response.statusCode() == GONE) {
+      log.error("Received status code {} when fetching image from: {}", response.statusCode(),
+          uri);
+      throw new ImageNotFoundException(
+          "Received status code " + response.statusCode() + " when fetching image from: " + uri);
+    }
+    if (response.statusCode() >= 500) {
+      log.error("Received status code {} when fetching image from: {}", response.statusCode(),
+          uri);
+      throw new HostUnavailableException(
+          "Received status code " + response.statusCode() + " when fetching image from: " + uri);
+    }
+    if (response.statusCode() < 200 || response.statusCode() >= 300) {
+      log.error("Received status code {} when fetching image from: {}", response.statusCode(),
+          uri);
+      throw new ProcessingFailedException(
+          "Received status code " + response.statusCode() + " when fetching image from: " + uri);
+    }
+    var contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+    if (contentLength > properties.getMaxSize().toBytes()) {
+      log.error("Image at {} has a size of {} bytes which exceeds the maximum size", uri,
+          contentLength);
+      throw new ImageRejectedException("Image at " + uri + " exceeds the maximum size");
+    }
+  }
+
+  // Only the delay in seconds is supported, an HTTP date is treated as no Retry-After
+  private static Duration getRetryAfter(HttpResponse<InputStream> response) {
+    var retryAfter = response.headers().firstValue("Retry-After");
+    if (retryAfter.isPresent() && retryAfter.get().strip().matches("\\d{1,9}")) {
+      return Duration.ofSeconds(Long.parseLong(retryAfter.get().strip()));
+    }
+    return null;
+  }
+
+  private FetchedImage spool(URI uri, HttpResponse<InputStream> response, InputStream body)
+      throws IOException, ProcessingFailedException {
+    var file = createSpoolFile();
+    var timedOut = new AtomicBoolean();
+    var lastRead = new AtomicLong(System.nanoTime());
+    var deadline = System.nanoTime() + properties.getTotalTimeout().toNanos();
+    var readTimeout = properties.getReadTimeout().toNanos();
+    // Closing the body is the only way to abort a blocking read on the response stream
+    var check = watchdog.scheduleAtFixedRate(() -> {
+      var now = System.nanoTime();
+      if (now - lastRead.get() > readTimeout || now > deadline) {
+        timedOut.set(true);
+        closeQuietly(body);
+      }
+    }, 1, 1, TimeUnit.SECONDS);
+    try (var output = Files.newOutputStream(file)) {
+      var buffer = new byte[BUFFER_SIZE];
+      var maxSize = properties.getMaxSize().toBytes();
+      long size = 0;
+      int read;
+      while ((read = body.read(buffer)) != -1) {
+        lastRead.set(System.nanoTime());
+        size += read;
+        if (size > maxSize) {
+          // Without a Content-Length the size is only known while reading
+          throw new ImageRejectedException("Image at " + uri + " exceeds the maximum size");
+        }
+        output.write(buffer, 0, read);
+      }
+      log.debug("Fetched {} bytes from {}", size, uri);
+      return new FetchedImage(file, response.headers().firstValue("Content-Type").orElse(null),
+          size);
+    } catch (IOException | ProcessingFailedException e) {
+      Files.deleteIfExists(file);
+      if (timedOut.get()) {
+        log.error("Timed out while fetching image from: {}", uri);
+        throw new HostUnavailableException("Timed out while fetching image from: " + uri);
+      }
+      throw e;
+    } finally {
+      check.cancel(false);
+    }
+  }
+
+  private Path createSpoolFile() throws IOException {
+    if (properties.getSpoolDirectory() != null) {
+      return Files.createTempFile(Path.of(properties.getSpoolDirectory()), "media-", ".tmp");
+    }
+    return Files.createTempFile("media-", ".tmp");
+  }
+
+  private static void closeQuietly(InputStream inputStream) {
+    try {
+      inputStream.close();
+    } catch (IOException e) {
+      log.debug("Failed to close the response body", e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    watchdog.shutdownNow();
+  }
+
+}
@@ -1,14 +1,15 @@
 package eu.dissco.core.digitalmediaderivativeservice.component;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodec;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodecRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
@@ -16,63 +17,141 @@ import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.amqp.support.converter.SimpleMessageConverter;
 import org.springframework.stereotype.Component;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.json.JsonMapper;
 
+/**
+ * Compresses the published messages with the codec of the configured content encoding, and
+ * decompresses consumed messages with the codec of their own content encoding. Messages without a
+ * known content encoding are converted as they are. A {@link DigitalMediaEvent} is serialized into
+ * a pooled buffer and compressed from there, without the intermediate String and byte array of a
+ * serialized String.
+ */
 @Component
 @Slf4j
 public class MessageCompressionComponent implements MessageConverter {
 
+  private static final int INITIAL_BUFFER_SIZE = 16 * 1024;
+  // A buffer that was grown for an exceptionally large message is not kept in the pool
+  private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
   final MessageConverter simpleConverter = new SimpleMessageConverter();
+  private final MessageCodecRegistry codecRegistry;
+  private final MessageCodec codec;
+  private final long minSize;
+  private final ObjectWriter eventWriter;
+  private final BlockingDeque<SerializationBuffer> buffers;
 
-  private static byte[] deflateMessage(byte[] message) throws IOException {
-    var bufferSize = 8192; // 8KB
-    try (var rstBao = new ByteArrayOutputStream(bufferSize)) {
-      try (var zos = new GZIPOutputStream(rstBao, bufferSize)) {
-        zos.write(message);
-        zos.flush();
-      }
-      return rstBao.toByteArray();
+  public MessageCompressionComponent(MessageCompressionProperties properties,
+      MessageCodecRegistry codecRegistry, PipelineProperties pipelineProperties,
+      JsonMapper jsonMapper) {
+    this.codecRegistry = codecRegistry;
+    this.codec = codecRegistry.getCodec(properties.getEncoding());
+    if (codec == null) {
+      throw new IllegalArgumentException(
+          "No codec available for content encoding: " + properties.getEncoding());
     }
+    this.minSize = properties.getMinSize().toBytes();
+    this.eventWriter = jsonMapper.writerFor(DigitalMediaEvent.class);
+    // The events are published by the publish stage
+    this.buffers = new LinkedBlockingDeque<>(pipelineProperties.getPublishConcurrency());
   }
 
   @Override
-  public Message toMessage(final Object messageString, final MessageProperties messageProperties)
+  public Message toMessage(final Object object, final MessageProperties messageProperties)
       throws MessageConversionException {
-
-    if (!(messageString instanceof String)) {
-      throw new MessageConversionException("Invalid message type: " + messageString.getClass());
+    messageProperties.setContentType("application/json");
+    switch (object) {
+      case String messageString -> {
+        final byte[] message = messageString.getBytes(StandardCharsets.UTF_8);
+        if (message.length < minSize) {
+          return new Message(message, messageProperties);
+        }
+        return compress(message, message.length, messageProperties);
+      }
+      case DigitalMediaEvent event -> {
+        return toMessage(event, messageProperties);
+      }
+      default -> throw new MessageConversionException(
+          "Invalid message type: " + object.getClass());
     }
-    final byte[] message = ((String) messageString).getBytes(StandardCharsets.UTF_8);
+  }
 
-    final byte[] compressedMessage;
+  private Message toMessage(DigitalMediaEvent event, MessageProperties messageProperties) {
+    var buffer = buffers.pollFirst();
+    if (buffer == null) {
+      buffer = new SerializationBuffer();
+    }
     try {
-      compressedMessage = deflateMessage(message);
-      log.debug(
-          "Compressed Length: " + compressedMessage.length + " vs Message Length: " + message.length
-              + " / Ratio: " +
-              String.format("%.2f%%", compressedMessage.length * 100f / message.length));
-      messageProperties.setContentType("application/json");
-      messageProperties.setContentEncoding("gzip");
-      return new Message(compressedMessage, messageProperties);
-    } catch (IOException e) {
-      throw new MessageConversionException("Failed to compress message " + messageString, e);
+      eventWriter.writeValue(buffer, event);
+      if (buffer.size() < minSize) {
+        return new Message(buffer.toByteArray(), messageProperties);
+      }
+      return compress(buffer.array(), buffer.size(), messageProperties);
+    } catch (JacksonException e) {
+      throw new MessageConversionException("Failed to serialize event", e);
+    } finally {
+      buffer.reset();
+      if (buffer.array().length <= MAX_RETAINED_BUFFER_SIZE) {
+        buffers.offerFirst(buffer);
+      }
+    }
+  }
+
+  private Message compress(byte[] message, int length, MessageProperties messageProperties) {
+    final byte[] compressedMessage = codec.compress(message, 0, length, messageProperties);
+    if (log.isDebugEnabled()) {
+      log.debug("Compressed Length: {} vs Message Length: {} / Ratio: {}",
+          compressedMessage.length, length,
+          String.format("%.2f%%", compressedMessage.length * 100f / length));
     }
+    messageProperties.setContentEncoding(codec.getContentEncoding());
+    return new Message(compressedMessage, messageProperties);
   }
 
   @Override
   public Object fromMessage(final Message message) throws MessageConversionException {
-    var useGzip = "gzip".equals(message.getMessageProperties().getContentEncoding());
-    if (useGzip) {
-      try {
-        try (var reader = new BufferedReader(new InputStreamReader(
-            new GZIPInputStream(new ByteArrayInputStream(message.getBody()))))) {
-          return reader.lines().collect(Collectors.joining(System.lineSeparator()));
-        }
-      } catch (IOException e) {
-        throw new MessageConversionException(
-            "Failed to decompress message " + new String(message.getBody()), e);
-      }
+    var messageCodec = codecRegistry.getCodec(
+        message.getMessageProperties().getContentEncoding());
+    if (messageCodec != null) {
+      return new String(decompress(messageCodec, message), StandardCharsets.UTF_8);
     } else {
       return simpleConverter.fromMessage(message);
     }
   }
+
+  /**
+   * Returns the decompressed body of the message, or the body itself when it has no known content
+   * encoding. Unlike {@link #fromMessage(Message)} the body is not decoded into a String, so it can
+   * be parsed from the bytes.
+   */
+  public byte[] getBody(final Message message) throws MessageConversionException {
+    var messageCodec = codecRegistry.getCodec(
+        message.getMessageProperties().getContentEncoding());
+    return messageCodec != null ? decompress(messageCodec, message) : message.getBody();
+  }
+
+  private static byte[] decompress(MessageCodec messageCodec, Message message) {
+    try {
+      return messageCodec.decompress(message.getBody(), message.getMessageProperties());
+    } catch (IOException e) {
+      throw new MessageConversionException(
+          "Failed to decompress message " + new String(message.getBody()), e);
+    }
+  }
+
+  // Gives access to the array of the stream, so the content can be compressed without a copy
+  private static final class SerializationBuffer extends ByteArrayOutputStream {
+
+    private SerializationBuffer() {
+      super(INITIAL_BUFFER_SIZE);
+    }
+
+    private byte[] array() {
+      return buf;
+    }
+
+  }
+
 }
@@ -0,0 +1,64 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.NegativeCacheProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Remembers the access URIs that recently returned 404 or content that could not be decoded, so a
+ * redelivery of their message fails without fetching the image again. The entries expire after the
+ * TTL and the oldest entries are evicted when the cache is full.
+ */
+@Slf4j
+@Component
+public class NegativeCache {
+
+  public static final String NEGATIVE_CACHE_SIZE = "media.fetch.negative.cache.size";
+
+  private final long ttl;
+  // Every entry has the same TTL, so the insertion order is also the order in which they expire
+  private final LinkedHashMap<String, Long> expiries;
+
+  public NegativeCache(NegativeCacheProperties properties, MeterRegistry meterRegistry) {
+    this.ttl = properties.getTtl().toNanos();
+    var maxSize = properties.getMaxSize();
+    this.expiries = new LinkedHashMap<>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+        return size() > maxSize;
+      }
+    };
+    Gauge.builder(NEGATIVE_CACHE_SIZE, this, NegativeCache::size).register(meterRegistry);
+  }
+
+  public synchronized void add(String accessUri, String reason) {
+    log.info("Access URI {} {}, it will not be fetched again for {} seconds", accessUri, reason,
+        ttl / 1_000_000_000L);
+    // Removed first, so a renewed entry moves to the end of the insertion order
+    expiries.remove(accessUri);
+    expiries.put(accessUri, System.nanoTime() + ttl);
+  }
+
+  public synchronized boolean contains(String accessUri) {
+    evictExpired(System.nanoTime());
+    return expiries.containsKey(accessUri);
+  }
+
+  synchronized int size() {
+    evictExpired(System.nanoTime());
+    return expiries.size();
+  }
+
+  private void evictExpired(long now) {
+    Iterator<Long> iterator = expiries.values().iterator();
+    while (iterator.hasNext() && now - iterator.next() >= 0) {
+      iterator.remove();
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * A stage of the {@link ProcessingPipeline}: a fixed number of workers that take their tasks from
+ * a bounded queue. Submitting a task while the queue is full blocks the caller until a worker has
+ * taken one, so a slow stage holds up the stage before it and in the end the RabbitMQ consumer.
+ */
+@Slf4j
+public class PipelineStage {
+
+  public static final String QUEUE_DEPTH = "media.pipeline.queue.depth";
+  public static final String STAGE_ACTIVE = "media.pipeline.stage.active";
+  public static final String STAGE_UTILISATION = "media.pipeline.stage.utilisation";
+  public static final String STAGE_BLOCKED = "media.pipeline.stage.blocked";
+
+  // Runs every task on the submitting thread, the pipeline then behaves like a single call
+  public static final PipelineStage DIRECT = new PipelineStage();
+
+  private final String name;
+  private final Executor executor;
+  // Tasks that are queued or running, bounded by the workers and the queue capacity
+  private final Semaphore slots;
+  private final Timer blocked;
+
+  public PipelineStage(String name, int workers, int queueCapacity, ThreadFactory threadFactory,
+      MeterRegistry meterRegistry) {
+    this.name = name;
+    // The slots bound the queue, so the executor never has to reject a task
+    var threadPool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(), threadFactory);
+    this.executor = threadPool;
+    this.slots = new Semaphore(workers + queueCapacity);
+    Gauge.builder(QUEUE_DEPTH, threadPool, pool -> pool.getQueue().size()).tag("stage", name)
+        .register(meterRegistry);
+    Gauge.builder(STAGE_ACTIVE, threadPool, ThreadPoolExecutor::getActiveCount)
+        .tag("stage", name).register(meterRegistry);
+    Gauge.builder(STAGE_UTILISATION, threadPool,
+            pool -> (double) pool.getActiveCount() / pool.getMaximumPoolSize())
+        .tag("stage", name).register(meterRegistry);
+    // Time the previous stage (or the consumer) waited because this stage was full
+    this.blocked = Timer.builder(STAGE_BLOCKED).tag("stage", name).register(meterRegistry);
+  }
+
+  private PipelineStage() {
+    this.name = "direct";
+    this.executor = Runnable::run;
+    this.slots = new Semaphore(Integer.MAX_VALUE);
+    this.blocked = null;
+  }
+
+  /**
+   * Queues the task, blocking while the queue of the stage is full. The returned future completes
+   * with the result of the task on a worker of this stage, so dependent actions that are not async
+   * run on that worker as well; they should only hand the result to the next stage.
+   */
+  public <T> CompletableFuture<T> submit(Task<T> task) {
+    try {
+      acquireSlot();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(
+          new ProcessingFailedException("Interrupted while waiting for stage " + name));
+    }
+    var future = new CompletableFuture<T>();
+    try {
+      executor.execute(() -> run(task, future));
+    } catch (RejectedExecutionException e) {
+      slots.release();
+      return CompletableFuture.failedFuture(e);
+    }
+    return future;
+  }
+
+  private void acquireSlot() throws InterruptedException {
+    if (!slots.tryAcquire()) {
+      log.debug("Stage {} is full, waiting for a free slot", name);
+      var start = System.nanoTime();
+      slots.acquire();
+      blocked.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private <T> void run(Task<T> task, CompletableFuture<T> future) {
+    T result;
+    try {
+      result = task.call();
+    } catch (Throwable e) {
+      // Includes errors such as an OutOfMemoryError, the future has to complete in any case
+      slots.release();
+      future.completeExceptionally(e);
+      return;
+    }
+    // Released first, so the next task can start while the result is handed on
+    slots.release();
+    future.complete(result);
+  }
+
+  public void shutdown() {
+    if (executor instanceof ThreadPoolExecutor threadPool) {
+      threadPool.shutdown();
+    }
+  }
+
+  @FunctionalInterface
+  public interface Task<T> {
+
+    T call() throws ProcessingFailedException;
+  }
+
+}
@@ -0,0 +1,27 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The stages a message passes through, each with its own workers and bounded queue: the image is
+ * fetched, then decoded, resized and encoded, and finally the uploads are awaited and the result
+ * is published. Only the transform stage needs the CPU, the other stages wait on the network.
+ * A message that continues from a thread which must not block, such as one of the S3 client, is
+ * handed off to submit to the next stage.
+ */
+public record ProcessingPipeline(
+    PipelineStage fetch,
+    PipelineStage transform,
+    PipelineStage publish,
+    Executor handoff) {
+
+  public static final ProcessingPipeline DIRECT = new ProcessingPipeline(PipelineStage.DIRECT,
+      PipelineStage.DIRECT, PipelineStage.DIRECT, Runnable::run);
+
+  public void shutdown() {
+    fetch.shutdown();
+    transform.shutdown();
+    publish.shutdown();
+  }
+
+}
@@ -0,0 +1,152 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.ProvenanceEvent;
+import eu.dissco.core.digitalmediaderivativeservice.exception.InvalidEventException;
+import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMedia;
+import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationFeature;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectReader;
+import tools.jackson.databind.json.JsonMapper;
+
+/**
+ * Reads the provenance events from the message bodies in a single pass. The type of the
+ * prov:Activity is read first and events of other activities than a create are not read any
+ * further, which skips the largest part of the message: the prov:Entity. The prov:value of a create
+ * event is bound to a {@link DigitalMedia} directly from the parser, without an intermediate tree.
+ */
+@Component
+public class ProvenanceEventReader {
+
+  private static final String ACTIVITY = "prov:Activity";
+  private static final String ENTITY = "prov:Entity";
+  private static final String VALUE = "prov:value";
+  private static final String ID = "@id";
+  private static final String TYPE = "@type";
+  private static final String DIGITAL_MEDIA_TYPE = "ods:DigitalMedia";
+
+  private final ObjectReader digitalMediaReader;
+
+  public ProvenanceEventReader(JsonMapper jsonMapper) {
+    // The Digital Media is bound from the middle of the event, the rest of the event follows it
+    this.digitalMediaReader = jsonMapper.readerFor(DigitalMedia.class)
+        .without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+  }
+
+  /**
+   * Reads the event from the (decompressed) message body.
+   *
+   * @return the event, with the Digital Media only when it is a create event
+   * @throws InvalidEventException when the event has no activity type, or a create event has no
+   *                               Digital Media as entity
+   */
+  public ProvenanceEvent read(byte[] body) throws InvalidEventException {
+    try (var parser = digitalMediaReader.createParser(body)) {
+      requireObject(parser.nextToken(), "Event");
+      String id = null;
+      ProvActivity.Type activityType = null;
+      DigitalMedia digitalMedia = null;
+      // The entity is only kept as a tree when it comes before the activity
+      JsonNode entity = null;
+      while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+        var name = parser.currentName();
+        var token = parser.nextToken();
+        switch (name) {
+          case ID -> id = parser.getValueAsString();
+          case ACTIVITY -> {
+            requireObject(token, ACTIVITY);
+            activityType = readActivityType(parser);
+            if (activityType == null) {
+              throw new InvalidEventException("Event " + id + " has no " + ACTIVITY + " type");
+            }
+            if (activityType != ProvActivity.Type.ODS_CREATE) {
+              return new ProvenanceEvent(id, activityType, null);
+            }
+          }
+          case ENTITY -> {
+            requireObject(token, ENTITY);
+            if (activityType == null) {
+              entity = parser.readValueAsTree();
+            } else {
+              digitalMedia = readEntity(parser);
+            }
+          }
+          default -> parser.skipChildren();
+        }
+      }
+      if (activityType == null) {
+        throw new InvalidEventException("Event " + id + " has no " + ACTIVITY + " type");
+      }
+      if (entity != null) {
+        digitalMedia = readEntity(entity);
+      }
+      if (digitalMedia == null) {
+        throw new InvalidEventException("Create event " + id + " has no Digital Media");
+      }
+      return new ProvenanceEvent(id, activityType, digitalMedia);
+    }
+  }
+
+  private static void requireObject(JsonToken token, String name) throws InvalidEventException {
+    if (token != JsonToken.START_OBJECT) {
+      throw new InvalidEventException(name + " is not a json object");
+    }
+  }
+
+  private static ProvActivity.Type readActivityType(JsonParser parser)
+      throws InvalidEventException {
+    ProvActivity.Type type = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      var name = parser.currentName();
+      parser.nextToken();
+      if (TYPE.equals(name)) {
+        type = toActivityType(parser.getValueAsString());
+      } else {
+        parser.skipChildren();
+      }
+    }
+    return type;
+  }
+
+  private static ProvActivity.Type toActivityType(String value) throws InvalidEventException {
+    try {
+      return ProvActivity.Type.fromValue(value);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidEventException("Unknown " + ACTIVITY + " type: " + value);
+    }
+  }
+
+  private DigitalMedia readEntity(JsonParser parser) throws InvalidEventException {
+    String type = null;
+    DigitalMedia digitalMedia = null;
+    while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+      var name = parser.currentName();
+      parser.nextToken();
+      switch (name) {
+        case TYPE -> type = parser.getValueAsString();
+        // Bound before the type is checked when the producer wrote the value first
+        case VALUE -> digitalMedia = digitalMediaReader.readValue(parser);
+        default -> parser.skipChildren();
+      }
+    }
+    return requireDigitalMedia(type, digitalMedia);
+  }
+
+  private DigitalMedia readEntity(JsonNode entity) throws InvalidEventException {
+    var value = entity.get(VALUE);
+    return requireDigitalMedia(entity.path(TYPE).stringValue(null),
+        value == null || value.isNull() ? null : digitalMediaReader.readValue(value));
+  }
+
+  private static DigitalMedia requireDigitalMedia(String type, DigitalMedia digitalMedia)
+      throws InvalidEventException {
+    if (!DIGITAL_MEDIA_TYPE.equals(type)) {
+      throw new InvalidEventException("Invalid provenance entity of type: " + type);
+    }
+    return digitalMedia;
+  }
+
+}
@@ -0,0 +1,184 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pool of the byte arrays that hold the rasters of resized images. Rasters are taken within a
+ * {@link Lease} of the current thread and all of them are returned when the lease is closed, so
+ * the resamplers do not have to track which of their results are still in use. Outside a lease
+ * the arrays are allocated as usual.
+ *
+ * <p>Arrays are pooled by size class, each power of two is split in four classes so an array is
+ * at most 25% larger than requested. The contents of an array taken from the pool are undefined.
+ */
+@Slf4j
+@Component
+public class RasterPool {
+
+  public static final String POOL_REQUESTS = "media.buffer.pool.requests";
+  public static final String POOL_RETAINED = "media.buffer.pool.retained";
+
+  private static final ThreadLocal<Lease> CURRENT_LEASE = new ThreadLocal<>();
+  // The size classes of larger arrays would overflow
+  private static final int MAX_POOLED_SIZE = 1 << 30;
+
+  private final ConcurrentMap<Integer, SizeClass> sizeClasses = new ConcurrentHashMap<>();
+  private final AtomicLong retainedBytes = new AtomicLong();
+  private final long maxRetained;
+  private final int minPooledSize;
+  private final long idleTimeout;
+  private final Counter hits;
+  private final Counter misses;
+
+  public RasterPool(BufferPoolProperties properties, MeterRegistry meterRegistry) {
+    this.maxRetained = properties.getMaxRetained().toBytes();
+    this.minPooledSize = (int) Math.min(MAX_POOLED_SIZE, properties.getMinPooledSize().toBytes());
+    this.idleTimeout = properties.getIdleTimeout().toNanos();
+    this.hits = Counter.builder(POOL_REQUESTS).tag("pool", "raster").tag("result", "hit")
+        .register(meterRegistry);
+    this.misses = Counter.builder(POOL_REQUESTS).tag("pool", "raster").tag("result", "miss")
+        .register(meterRegistry);
+    Gauge.builder(POOL_RETAINED, retainedBytes, AtomicLong::get).tag("pool", "raster")
+        .baseUnit("bytes").register(meterRegistry);
+  }
+
+  /**
+   * Returns an array of at least the given length, from the pool when the current thread holds a
+   * lease.
+   */
+  public static byte[] allocate(int length) {
+    var lease = CURRENT_LEASE.get();
+    return lease == null ? new byte[length] : lease.acquire(length);
+  }
+
+  /**
+   * Returns an array to the pool before the lease is closed. Arrays that were not taken within the
+   * lease of the current thread are ignored, so it is safe to call for any array.
+   */
+  public static void release(byte[] array) {
+    var lease = CURRENT_LEASE.get();
+    if (lease != null) {
+      lease.release(array);
+    }
+  }
+
+  public Lease lease() {
+    if (CURRENT_LEASE.get() != null) {
+      throw new IllegalStateException("The current thread already holds a lease");
+    }
+    var lease = new Lease();
+    CURRENT_LEASE.set(lease);
+    return lease;
+  }
+
+  public long getRetainedBytes() {
+    return retainedBytes.get();
+  }
+
+  static int getSizeClass(int length) {
+    var step = Integer.highestOneBit(length) >> 2;
+    return step == 0 ? length : Math.ceilDiv(length, step) * step;
+  }
+
+  private boolean isPooled(int length) {
+    return length >= minPooledSize && length <= MAX_POOLED_SIZE;
+  }
+
+  private byte[] take(int length) {
+    var size = getSizeClass(length);
+    var sizeClass = sizeClasses.computeIfAbsent(size, key -> new SizeClass());
+    sizeClass.lastUsed = System.nanoTime();
+    var array = sizeClass.arrays.pollFirst();
+    if (array != null) {
+      retainedBytes.addAndGet(-array.length);
+      hits.increment();
+      return array;
+    }
+    misses.increment();
+    return new byte[size];
+  }
+
+  private void give(byte[] array) {
+    if (retainedBytes.addAndGet(array.length) > maxRetained) {
+      // The pool is full, the array is left to the garbage collector
+      retainedBytes.addAndGet(-array.length);
+      return;
+    }
+    // Most recently used first, it is the most likely to still be in the cache
+    sizeClasses.computeIfAbsent(array.length, key -> new SizeClass()).arrays.offerFirst(array);
+  }
+
+  /**
+   * Releases the arrays of the size classes that have not been used within the idle timeout.
+   */
+  @Scheduled(fixedDelayString = "${buffer-pool.idle-timeout:5m}")
+  public void trim() {
+    var now = System.nanoTime();
+    for (var sizeClass : sizeClasses.values()) {
+      if (now - sizeClass.lastUsed > idleTimeout) {
+        byte[] array;
+        while ((array = sizeClass.arrays.pollFirst()) != null) {
+          retainedBytes.addAndGet(-array.length);
+        }
+      }
+    }
+    log.debug("Raster pool retains {} bytes after trimming", retainedBytes.get());
+  }
+
+  private static class SizeClass {
+
+    private final ConcurrentLinkedDeque<byte[]> arrays = new ConcurrentLinkedDeque<>();
+    private volatile long lastUsed = System.nanoTime();
+  }
+
+  /**
+   * The arrays taken by a single thread. Closing the lease returns all of them to the pool, after
+   * which the images that use them must no longer be referenced.
+   */
+  public final class Lease implements AutoCloseable {
+
+    private final List<byte[]> arrays = new ArrayList<>();
+
+    private Lease() {
+    }
+
+    private byte[] acquire(int length) {
+      if (!isPooled(length)) {
+        return new byte[length];
+      }
+      var array = take(length);
+      arrays.add(array);
+      return array;
+    }
+
+    private void release(byte[] array) {
+      for (int i = arrays.size() - 1; i >= 0; i--) {
+        if (arrays.get(i) == array) {
+          arrays.remove(i);
+          give(array);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void close() {
+      CURRENT_LEASE.remove();
+      arrays.forEach(RasterPool.this::give);
+      arrays.clear();
+    }
+  }
+
+}
@@ -2,15 +2,25 @@ package eu.dissco.core.digitalmediaderivativeservice.configuration;
 
 import com.fasterxml.jackson.annotation.JsonSetter.Value;
 import com.fasterxml.jackson.annotation.Nulls;
+import eu.dissco.core.digitalmediaderivativeservice.component.PipelineStage;
+import eu.dissco.core.digitalmediaderivativeservice.component.ProcessingPipeline;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.ResizeProperties;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.FilterKernel;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.RowBandExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.text.SimpleDateFormat;
 import java.time.ZoneOffset;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import tools.jackson.databind.json.JsonMapper;
 
+@Slf4j
 @Configuration
 public class ApplicationConfiguration {
 
@@ -31,4 +41,36 @@ public class ApplicationConfiguration {
         .build();
   }
 
+  @Bean(destroyMethod = "shutdown")
+  public ProcessingPipeline processingPipeline(PipelineProperties properties,
+      MeterRegistry meterRegistry) {
+    var queueCapacity = properties.getQueueCapacity();
+    return new ProcessingPipeline(
+        new PipelineStage("fetch", properties.getFetchConcurrency(), queueCapacity,
+            Thread.ofVirtual().name("fetch-", 0).factory(), meterRegistry),
+        new PipelineStage("transform", properties.getTransformThreads(), queueCapacity,
+            Thread.ofPlatform().name("transform-", 0).factory(), meterRegistry),
+        new PipelineStage("publish", properties.getPublishConcurrency(), queueCapacity,
+            Thread.ofVirtual().name("publish-", 0).factory(), meterRegistry),
+        Thread::startVirtualThread);
+  }
+
+  @Bean(destroyMethod = "shutdown")
+  public RowBandExecutor rowBandExecutor(ResizeProperties properties) {
+    return new RowBandExecutor(properties.getParallelism(), properties.getParallelThreshold());
+  }
+
+  @Bean
+  public FilterKernel filterKernel(ResizeProperties properties) {
+    if (properties.isVectorized()) {
+      if (FilterKernel.isVectorAvailable()) {
+        log.info("Resizing with the Vector API");
+        return FilterKernel.vector();
+      }
+      log.warn("Module {} is not enabled or the service was built without the vector profile, "
+          + "resizing with the scalar kernel", FilterKernel.VECTOR_MODULE);
+    }
+    return FilterKernel.SCALAR;
+  }
+
 }
@@ -0,0 +1,34 @@
+package eu.dissco.core.digitalmediaderivativeservice.configuration;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Version;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@RequiredArgsConstructor
+public class HttpClientConfiguration {
+
+  private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+  private final ImageFetchProperties properties;
+
+  @Bean
+  public HttpClient imageHttpClient() {
+    // The client pools the connections per host, the idle timeout can only be set as a system
+    // property which is read when the first client is created
+    if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+      System.setProperty(KEEP_ALIVE_PROPERTY,
+          String.valueOf(properties.getKeepAliveTimeout().toSeconds()));
+    }
+    // Connections are kept alive and reused by the client, HTTP/2 falls back to HTTP/1.1
+    return HttpClient.newBuilder()
+        .version(Version.HTTP_2)
+        .connectTimeout(properties.getConnectTimeout())
+        .followRedirects(properties.getRedirect())
+        .build();
+  }
+
+}
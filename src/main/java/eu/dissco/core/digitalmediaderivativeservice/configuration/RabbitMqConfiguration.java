@@ -1,7 +1,13 @@
 package eu.dissco.core.digitalmediaderivativeservice.configuration;
 
 import eu.dissco.core.digitalmediaderivativeservice.component.MessageCompressionComponent;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.util.ArrayList;
 import lombok.AllArgsConstructor;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -13,6 +19,7 @@ import org.springframework.context.annotation.Configuration;
 public class RabbitMqConfiguration {
 
   private final MessageCompressionComponent compressedMessageConverter;
+  private final RabbitMqProperties properties;
 
   @Bean
   public SimpleRabbitListenerContainerFactory consumerBatchContainerFactory(
@@ -20,14 +27,44 @@ public class RabbitMqConfiguration {
     SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
     factory.setConnectionFactory(connectionFactory);
     factory.setMessageConverter(compressedMessageConverter);
+    factory.setBatchListener(true);
+    factory.setConsumerBatchEnabled(true);
+    factory.setBatchSize(properties.getBatchSize());
+    factory.setBatchReceiveTimeout(properties.getBatchReceiveTimeout().toMillis());
+    factory.setPrefetchCount(properties.getPrefetchCount());
+    factory.setConcurrentConsumers(properties.getConcurrentConsumers());
+    factory.setMaxConcurrentConsumers(properties.getMaxConcurrentConsumers());
+    // Messages of a batch are acknowledged individually by the listener
+    factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
     return factory;
   }
 
+  /*
+   * A retry queue has no consumer, its messages are dead-lettered back into the queue of the
+   * consumer (through the default exchange) when their TTL expires. As all messages of a queue have
+   * the same TTL, they expire in the order in which they were added.
+   */
+  @Bean
+  public Declarables retryQueues() {
+    var queues = new ArrayList<Declarable>();
+    for (var delay : properties.getRetryDelays()) {
+      queues.add(QueueBuilder.durable(properties.getRetryQueueName(delay))
+          .ttl(Math.toIntExact(delay.toMillis()))
+          .deadLetterExchange("")
+          .deadLetterRoutingKey(properties.getQueueName())
+          .build());
+    }
+    queues.add(QueueBuilder.durable(properties.getDeadLetterQueueName()).build());
+    return new Declarables(queues);
+  }
+
   @Bean
   public RabbitTemplate compressedTemplate(ConnectionFactory connectionFactory,
       MessageCompressionComponent compressedMessageConverter) {
     var rabbitTemplate = new RabbitTemplate(connectionFactory);
     rabbitTemplate.setMessageConverter(compressedMessageConverter);
+    // An event that can not be routed is returned, instead of being dropped and confirmed
+    rabbitTemplate.setMandatory(connectionFactory.isPublisherReturns());
     return rabbitTemplate;
   }
 
@@ -0,0 +1,36 @@
+package eu.dissco.core.digitalmediaderivativeservice.controller;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.ReplayResult;
+import eu.dissco.core.digitalmediaderivativeservice.service.RabbitMqRetryService;
+import jakarta.validation.constraints.Positive;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/dead-letter")
+public class DeadLetterController {
+
+  // The replayed messages are held unacknowledged on a single channel until they are confirmed
+  static final int MAX_LIMIT = 1000;
+
+  private final RabbitMqRetryService retryService;
+
+  @PostMapping("/replay")
+  public ResponseEntity<ReplayResult> replay(
+      @RequestParam(defaultValue = "100") @Positive int limit) {
+    if (limit > MAX_LIMIT) {
+      log.warn("Replay limit {} exceeds the maximum, replaying {} messages", limit, MAX_LIMIT);
+      limit = MAX_LIMIT;
+    }
+    log.info("Received request to replay {} messages from the dead letter queue", limit);
+    return ResponseEntity.ok(new ReplayResult(retryService.replay(limit)));
+  }
+
+}
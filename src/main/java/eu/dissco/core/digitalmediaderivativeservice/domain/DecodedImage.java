@@ -0,0 +1,10 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+import java.awt.image.BufferedImage;
+
+public record DecodedImage(
+    BufferedImage image,
+    int originalWidth,
+    int originalHeight) {
+
+}
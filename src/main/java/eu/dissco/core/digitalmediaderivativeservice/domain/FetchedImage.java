@@ -0,0 +1,17 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public record FetchedImage(
+    Path file,
+    String contentType,
+    long size) implements AutoCloseable {
+
+  @Override
+  public void close() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+}
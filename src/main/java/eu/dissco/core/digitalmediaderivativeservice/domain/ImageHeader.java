@@ -0,0 +1,12 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+public record ImageHeader(
+    String mimeType,
+    int width,
+    int height,
+    // Size of a decoded pixel, estimated from the raw image type of the reader
+    int bytesPerPixel,
+    // ColorSpaceType of the standard ImageIO metadata, e.g. YCbCr, only read for JPEG images
+    String colorSpace) {
+
+}
@@ -0,0 +1,16 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMedia;
+import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity;
+
+public record ProvenanceEvent(
+    String id,
+    ProvActivity.Type activityType,
+    // Only read for create events
+    DigitalMedia digitalMedia) {
+
+  public boolean isCreate() {
+    return ProvActivity.Type.ODS_CREATE.equals(activityType);
+  }
+
+}
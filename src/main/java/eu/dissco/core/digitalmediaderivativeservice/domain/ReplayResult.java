@@ -0,0 +1,7 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+public record ReplayResult(
+    // Number of messages moved from the dead letter queue back to the queue of the consumer
+    int replayed) {
+
+}
@@ -0,0 +1,10 @@
+package eu.dissco.core.digitalmediaderivativeservice.domain;
+
+public record StoredDerivative(
+    int width,
+    int height,
+    // Dimensions of the original image the derivative was created from
+    int originalWidth,
+    int originalHeight) {
+
+}
@@ -0,0 +1,24 @@
+package eu.dissco.core.digitalmediaderivativeservice.encoder;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface ImageEncoder {
+
+  // Canonical ImageIO format name, used in the key of a derivative
+  String getFormat();
+
+  // Every name the format is known by, e.g. jpeg, jpg, JPEG
+  default List<String> getFormatNames() {
+    return List.of(getFormat());
+  }
+
+  String getMimeType();
+
+  void encode(BufferedImage image, DerivativeProfile profile, OutputStream output)
+      throws IOException;
+
+}
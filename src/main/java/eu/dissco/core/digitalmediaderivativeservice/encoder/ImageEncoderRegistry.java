@@ -0,0 +1,58 @@
+package eu.dissco.core.digitalmediaderivativeservice.encoder;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides the encoder of a format. Formats without a dedicated encoder bean are encoded with the
+ * ImageIO writer plugin of the format, when one is on the classpath. An encoder is found by any
+ * name of its format, ignoring case, so jpg gets the same encoder as jpeg.
+ */
+@Component
+public class ImageEncoderRegistry {
+
+  private final Map<String, ImageEncoder> encoders = new ConcurrentHashMap<>();
+
+  public ImageEncoderRegistry(List<ImageEncoder> encoders) {
+    for (var encoder : encoders) {
+      encoder.getFormatNames().forEach(name -> this.encoders.put(normalize(name), encoder));
+    }
+  }
+
+  private static String normalize(String format) {
+    return format.toLowerCase(Locale.ROOT);
+  }
+
+  public ImageEncoder getEncoder(String format) throws ProcessingFailedException {
+    var encoder = encoders.get(normalize(format));
+    if (encoder != null) {
+      return encoder;
+    }
+    try {
+      encoder = encoders.computeIfAbsent(normalize(format), ImageIoEncoder::new);
+    } catch (IllegalArgumentException e) {
+      throw new ProcessingFailedException("No image writer available for format: " + format);
+    }
+    for (var name : encoder.getFormatNames()) {
+      encoders.putIfAbsent(normalize(name), encoder);
+    }
+    return encoder;
+  }
+
+  /**
+   * @return the canonical name of the format, or the lower-cased format when there is no encoder
+   * for it
+   */
+  public String getFormat(String format) {
+    try {
+      return getEncoder(format).getFormat();
+    } catch (ProcessingFailedException e) {
+      return normalize(format);
+    }
+  }
+
+}
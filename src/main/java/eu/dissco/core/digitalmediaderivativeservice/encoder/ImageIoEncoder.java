@@ -0,0 +1,80 @@
+package eu.dissco.core.digitalmediaderivativeservice.encoder;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Encodes with the ImageIO writer plugin of a format. The write parameters of the profile are only
+ * applied when the writer supports them. No metadata is written, so the derivatives never carry
+ * the EXIF, XMP or ICC data of the original, apart from what the format itself requires.
+ */
+public class ImageIoEncoder implements ImageEncoder {
+
+  private final String format;
+  private final ImageWriterSpi writerSpi;
+
+  public ImageIoEncoder(String format) {
+    var writers = ImageIO.getImageWritersByFormatName(format);
+    if (!writers.hasNext()) {
+      throw new IllegalArgumentException("No image writer available for format: " + format);
+    }
+    var writer = writers.next();
+    this.writerSpi = writer.getOriginatingProvider();
+    // The first name of the writer, so every alias of a format ends up with the same name
+    this.format = writerSpi.getFormatNames()[0].toLowerCase(Locale.ROOT);
+    writer.dispose();
+  }
+
+  @Override
+  public String getFormat() {
+    return format;
+  }
+
+  @Override
+  public List<String> getFormatNames() {
+    return Arrays.asList(writerSpi.getFormatNames());
+  }
+
+  @Override
+  public String getMimeType() {
+    return writerSpi.getMIMETypes()[0];
+  }
+
+  @Override
+  public void encode(BufferedImage image, DerivativeProfile profile, OutputStream output)
+      throws IOException {
+    // Writers are not thread-safe, the spi is
+    var writer = writerSpi.createWriterInstance();
+    // The memory cache avoids the temporary file ImageIO uses by default
+    try (var imageOutput = new MemoryCacheImageOutputStream(output)) {
+      var param = writer.getDefaultWriteParam();
+      configure(param, profile);
+      writer.setOutput(imageOutput);
+      writer.write(null, new IIOImage(image, null, null), param);
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  protected void configure(ImageWriteParam param, DerivativeProfile profile) {
+    if (profile.getQuality() != null && param.canWriteCompressed()) {
+      param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+      param.setCompressionQuality(profile.getQuality());
+    }
+    if (param.canWriteProgressive()) {
+      param.setProgressiveMode(profile.isProgressive() ? ImageWriteParam.MODE_DEFAULT
+          : ImageWriteParam.MODE_DISABLED);
+    }
+  }
+
+}
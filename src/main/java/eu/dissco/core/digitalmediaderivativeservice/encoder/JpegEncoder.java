@@ -0,0 +1,24 @@
+package eu.dissco.core.digitalmediaderivativeservice.encoder;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import org.springframework.stereotype.Component;
+
+@Component
+public class JpegEncoder extends ImageIoEncoder {
+
+  public JpegEncoder() {
+    super("jpeg");
+  }
+
+  @Override
+  protected void configure(ImageWriteParam param, DerivativeProfile profile) {
+    super.configure(param, profile);
+    // Progressive images always get optimized tables from the writer
+    if (param instanceof JPEGImageWriteParam jpegParam) {
+      jpegParam.setOptimizeHuffmanTables(profile.isOptimizeHuffman());
+    }
+  }
+
+}
@@ -0,0 +1,21 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * The image server asked us to slow down (429 or 503). The message is retried, and no new requests
+ * are sent to the host until the retry after has passed.
+ */
+@Getter
+public class HostThrottledException extends ProcessingFailedException {
+
+  // The Retry-After of the response, null when the server did not send one
+  private final Duration retryAfter;
+
+  public HostThrottledException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+
+}
@@ -0,0 +1,13 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+/**
+ * The image server could not be reached, did not respond in time or failed with a server error.
+ * Counts towards opening the circuit of the host.
+ */
+public class HostUnavailableException extends ProcessingFailedException {
+
+  public HostUnavailableException(String message) {
+    super(message);
+  }
+
+}
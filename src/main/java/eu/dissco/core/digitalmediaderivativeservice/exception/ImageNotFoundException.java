@@ -0,0 +1,12 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+/**
+ * The image server responded that the image does not exist (404 or 410).
+ */
+public class ImageNotFoundException extends ImageRejectedException {
+
+  public ImageNotFoundException(String message) {
+    super(message);
+  }
+
+}
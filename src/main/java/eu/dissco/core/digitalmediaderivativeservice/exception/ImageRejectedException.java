@@ -0,0 +1,13 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+/**
+ * The image can never be processed, for example because it is too large or can not be decoded.
+ * Unlike other processing failures the message is not retried but sent to the dead letter queue.
+ */
+public class ImageRejectedException extends ProcessingFailedException {
+
+  public ImageRejectedException(String message) {
+    super(message);
+  }
+
+}
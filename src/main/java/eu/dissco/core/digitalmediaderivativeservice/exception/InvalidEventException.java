@@ -0,0 +1,13 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+/**
+ * The event does not contain a Digital Media object. Like an {@link ImageRejectedException} the
+ * message is not retried.
+ */
+public class InvalidEventException extends ProcessingFailedException {
+
+  public InvalidEventException(String message) {
+    super(message);
+  }
+
+}
@@ -0,0 +1,13 @@
+package eu.dissco.core.digitalmediaderivativeservice.exception;
+
+/**
+ * The broker did not confirm the published event: it was nacked, returned as unroutable or not
+ * confirmed in time. The message is retried.
+ */
+public class PublishFailedException extends ProcessingFailedException {
+
+  public PublishFailedException(String message) {
+    super(message);
+  }
+
+}
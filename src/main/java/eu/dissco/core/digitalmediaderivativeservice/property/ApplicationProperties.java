@@ -1,9 +1,14 @@
 package eu.dissco.core.digitalmediaderivativeservice.property;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
 @Data
@@ -17,11 +22,24 @@ public class ApplicationProperties {
   @NotBlank
   private String pid = "https://doi.org/10.5281/zenodo.17935570";
 
-  @Positive
-  private float maxDerivativeImageSize = 2048f;
+  // Smaller profiles are generated from the nearest larger profile instead of from the original
+  @Valid
+  @NotEmpty
+  private List<DerivativeProfile> derivativeProfiles = List.of(
+      DerivativeProfile.builder().name("Derivative").maxSize(2048f).suffix("derivative").build(),
+      DerivativeProfile.builder().name("Thumbnail").maxSize(400f).suffix("thumbnail").build());
 
-  @Positive
-  private float maxThumbnailImageSize = 400f;
+  // The decoded raster is kept at least this many times larger than the largest output
+  @Min(1)
+  private int decodeOversamplingFactor = 2;
+
+  // Images that would decode to a larger raster are decoded and downscaled strip by strip
+  @NotNull
+  private DataSize streamingThreshold = DataSize.ofMegabytes(256);
+
+  // Approximate raster size of a single strip when an image is decoded in strips
+  @NotNull
+  private DataSize stripSize = DataSize.ofMegabytes(32);
 
   @NotBlank
   private String prefix;
@@ -0,0 +1,27 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("buffer-pool")
+public class BufferPoolProperties {
+
+  // Memory that idle raster buffers may keep, on top of the heap budget for decoding
+  @NotNull
+  private DataSize maxRetained = DataSize.ofMegabytes(256);
+
+  // Smaller rasters are cheap to allocate and are not pooled
+  @NotNull
+  private DataSize minPooledSize = DataSize.ofKilobytes(64);
+
+  // Buffers that have not been used for this long are released
+  @NotNull
+  private Duration idleTimeout = Duration.ofMinutes(5);
+
+}
@@ -0,0 +1,27 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("circuit-breaker")
+public class CircuitBreakerProperties {
+
+  // Consecutive failed requests to a host after which its circuit opens
+  @Positive
+  private int failureThreshold = 5;
+
+  // Time requests to a host fail without touching the network once its circuit is open
+  @NotNull
+  private Duration openDuration = Duration.ofMinutes(1);
+
+  // Trial requests that are let through once the open duration has passed
+  @Positive
+  private int halfOpenRequests = 1;
+
+}
@@ -0,0 +1,29 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("derivative-index")
+public class DerivativeIndexProperties {
+
+  // Skip the media of which all derivatives are already stored in the bucket
+  private boolean enabled = false;
+
+  // Regenerate the derivatives even when they are stored, the index is still kept up to date
+  private boolean force = false;
+
+  // Objects in the bucket the index is sized for, more raise the rate of false positives
+  @Positive
+  private int expectedKeys = 2_000_000;
+
+  // Share of absent keys that are reported as possibly present, and confirmed in S3
+  @Positive
+  @DecimalMax(value = "0.5")
+  private double falsePositiveRate = 0.01;
+
+}
@@ -0,0 +1,57 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import eu.dissco.core.digitalmediaderivativeservice.resampler.ResamplerType;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DerivativeProfile {
+
+  // Used in the title and description of the derivative, e.g. Thumbnail
+  @NotBlank
+  private String name;
+
+  @Positive
+  private float maxSize;
+
+  // ImageIO format name of the output, e.g. jpeg or png
+  @NotBlank
+  @Builder.Default
+  private String format = "jpeg";
+
+  // Compression quality between 0 and 1, when empty the default of the image writer is used
+  @DecimalMin("0.0")
+  @DecimalMax("1.0")
+  private Float quality;
+
+  // Write a progressive instead of a baseline image, when the format supports it
+  private boolean progressive;
+
+  // Compute Huffman tables for the image instead of using the standard JPEG tables
+  @Builder.Default
+  private boolean optimizeHuffman = true;
+
+  // Use the original as is when it already fits the profile and has the same format
+  @Builder.Default
+  private boolean passThrough = true;
+
+  // Used in the S3 key and the access URI of the derivative, e.g. thumbnail
+  @NotBlank
+  private String suffix;
+
+  // Filter used to scale the image down, see the README for the trade-offs
+  @NotNull
+  @Builder.Default
+  private ResamplerType resampler = ResamplerType.AREA_AVERAGING;
+
+}
@@ -0,0 +1,37 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("heap-budget")
+public class HeapBudgetProperties {
+
+  // Memory that can be reserved for decoding and resizing, when empty a fraction of the max heap
+  private DataSize size;
+
+  @DecimalMin("0.05")
+  @DecimalMax("0.95")
+  private double maxHeapFraction = 0.5;
+
+  // The decoded raster is reserved this many times, to cover the copies made while resizing
+  @DecimalMin("1.0")
+  private double workingMemoryFactor = 3.0;
+
+  // Images with more pixels are rejected as decompression bombs
+  @Positive
+  private long maxPixels = 250_000_000L;
+
+  // Maximum time to wait for memory, after which the message is requeued
+  @NotNull
+  private Duration acquireTimeout = Duration.ofMinutes(1);
+
+}
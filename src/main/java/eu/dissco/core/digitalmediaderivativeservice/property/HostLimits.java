@@ -0,0 +1,25 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostLimits {
+
+  // Requests to the host that run at the same time, and so the connections that are kept open
+  @Positive
+  @Builder.Default
+  private int maxConcurrentRequests = 4;
+
+  // Requests that are started per second, spread out evenly
+  @Positive
+  @Builder.Default
+  private double requestsPerSecond = 5.0;
+
+}
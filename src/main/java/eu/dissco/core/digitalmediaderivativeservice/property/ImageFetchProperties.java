@@ -0,0 +1,65 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import java.net.http.HttpClient.Redirect;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("image-fetch")
+public class ImageFetchProperties {
+
+  @NotNull
+  private Duration connectTimeout = Duration.ofSeconds(10);
+
+  // Maximum time to wait for the response headers and between two reads of the body
+  @NotNull
+  private Duration readTimeout = Duration.ofSeconds(30);
+
+  // Maximum time for the complete download, including the body
+  @NotNull
+  private Duration totalTimeout = Duration.ofMinutes(2);
+
+  @NotNull
+  private DataSize maxSize = DataSize.ofMegabytes(512);
+
+  @NotNull
+  private Redirect redirect = Redirect.NORMAL;
+
+  @NotBlank
+  private String userAgent = "DiSSCo Media Derivative Service";
+
+  // Directory in which the downloaded images are spooled, defaults to the system temp directory
+  private String spoolDirectory;
+
+  // Limits of every image server, unless the host has its own limits
+  @Valid
+  @NotNull
+  private HostLimits hostLimits = new HostLimits();
+
+  // Limits of specific hosts by host name, e.g. hosts[medialib.naturalis.nl]
+  @Valid
+  @NotNull
+  private Map<String, HostLimits> hosts = new HashMap<>();
+
+  // Pause of a host that answers with 429 or 503 without a Retry-After header
+  @NotNull
+  private Duration throttleBackoff = Duration.ofSeconds(30);
+
+  // Time an idle connection is kept open for the next request to the same host
+  @NotNull
+  private Duration keepAliveTimeout = Duration.ofMinutes(2);
+
+  public HostLimits getHostLimits(String host) {
+    return hosts.getOrDefault(host, hostLimits);
+  }
+
+}
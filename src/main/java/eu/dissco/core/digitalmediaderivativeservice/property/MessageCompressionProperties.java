@@ -0,0 +1,32 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("message-compression")
+public class MessageCompressionProperties {
+
+  // Content encoding of the published messages, consumed messages are decompressed by theirs
+  @NotBlank
+  private String encoding = "gzip";
+
+  // Smaller messages are published uncompressed, gzip gains little or even grows them
+  @NotNull
+  private DataSize minSize = DataSize.ofKilobytes(1);
+
+  @Min(1)
+  @Max(19)
+  private int zstdLevel = 3;
+
+  // Compress published zstd messages with the dictionary built from the json schemas
+  private boolean zstdDictionary = false;
+
+}
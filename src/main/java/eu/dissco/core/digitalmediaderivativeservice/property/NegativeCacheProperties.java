@@ -0,0 +1,23 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("negative-cache")
+public class NegativeCacheProperties {
+
+  // Access URIs that are remembered, the oldest are forgotten first
+  @PositiveOrZero
+  private int maxSize = 10_000;
+
+  // Time an access URI that was not found or could not be decoded fails without being fetched
+  @NotNull
+  private Duration ttl = Duration.ofHours(1);
+
+}
@@ -0,0 +1,30 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("pipeline")
+public class PipelineProperties {
+
+  // Images that are downloaded at the same time, each on its own virtual thread
+  @Positive
+  private int fetchConcurrency = 16;
+
+  // Threads that decode, resize and encode, the only stage that is bound by the CPU
+  @Positive
+  private int transformThreads = Runtime.getRuntime().availableProcessors();
+
+  // Messages of which the uploads are awaited and the result is published at the same time
+  @Positive
+  private int publishConcurrency = 32;
+
+  // Tasks that can wait in front of every stage before the previous stage is blocked
+  @PositiveOrZero
+  private int queueCapacity = 8;
+
+}
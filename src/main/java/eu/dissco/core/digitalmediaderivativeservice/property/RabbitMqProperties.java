@@ -1,6 +1,11 @@
 package eu.dissco.core.digitalmediaderivativeservice.property;
 
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
+import java.util.List;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
@@ -10,10 +15,55 @@ import org.springframework.validation.annotation.Validated;
 @ConfigurationProperties(prefix = "rabbitmq")
 public class RabbitMqProperties {
 
+  @NotBlank
+  private String queueName = "digital-media-derivative-queue";
+
+  // Delay before each retry of a failed message, the message is dead-lettered after the last one
+  @NotEmpty
+  private List<Duration> retryDelays = List.of(Duration.ofSeconds(30), Duration.ofMinutes(5),
+      Duration.ofHours(1));
+
+  @NotBlank
+  private String deadLetterQueueName = "digital-media-derivative-dlq";
+
   @NotBlank
   private String digitalMediaExchangeName = "digital-media-exchange";
 
   @NotBlank
   private String digitalMediaRoutingKeyName = "digital-media";
 
+  @NotNull
+  private Duration publisherConfirmTimeout = Duration.ofSeconds(30);
+
+  // Time an event waits for other events to be published with, zero publishes every event directly
+  @NotNull
+  private Duration publishLinger = Duration.ZERO;
+
+  @Positive
+  private int publishBatchSize = 20;
+
+  @Positive
+  private int batchSize = 50;
+
+  // Maximum time to wait for a batch to fill up before it is handed to the listener
+  @NotNull
+  private Duration batchReceiveTimeout = Duration.ofSeconds(1);
+
+  @Positive
+  private int prefetchCount = 100;
+
+  @Positive
+  private int concurrentConsumers = 1;
+
+  @Positive
+  private int maxConcurrentConsumers = 4;
+
+  /**
+   * Name of the queue in which a message waits for its retry after the delay. The delay is part of
+   * the name, as the TTL of an existing queue can not be changed.
+   */
+  public String getRetryQueueName(Duration delay) {
+    return queueName + "-retry-" + delay.toSeconds() + "s";
+  }
+
 }
@@ -0,0 +1,25 @@
+package eu.dissco.core.digitalmediaderivativeservice.property;
+
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+@Data
+@Validated
+@ConfigurationProperties("resize")
+public class ResizeProperties {
+
+  // Threads that split the resize of a single image, independent of the transform threads
+  @Positive
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  // Passes that read fewer source pixels are done on the calling thread
+  @PositiveOrZero
+  private long parallelThreshold = 4_000_000L;
+
+  // Run the filter passes with the Vector API, requires --add-modules jdk.incubator.vector
+  private boolean vectorized = false;
+
+}
@@ -1,51 +1,194 @@
 package eu.dissco.core.digitalmediaderivativeservice.repository;
 
+import eu.dissco.core.digitalmediaderivativeservice.component.EncodeBuffer;
+import eu.dissco.core.digitalmediaderivativeservice.component.EncodeBufferPool;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.domain.StoredDerivative;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.ImageEncoder;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.ImageEncoderRegistry;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.S3UploadException;
 import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
 import eu.dissco.core.digitalmediaderivativeservice.property.S3Properties;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
-import javax.imageio.ImageIO;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class S3Repository {
 
+  // User metadata of the derivatives, so a stored derivative can be described without fetching it
+  static final String WIDTH = "width";
+  static final String HEIGHT = "height";
+  static final String ORIGINAL_WIDTH = "original-width";
+  static final String ORIGINAL_HEIGHT = "original-height";
+
   private final S3AsyncClient s3Client;
   private final S3Properties properties;
   private final ApplicationProperties applicationProperties;
+  private final EncodeBufferPool encodeBufferPool;
+  private final ImageEncoderRegistry encoderRegistry;
 
-  private static ByteArrayInputStream imageToInputStream(BufferedImage resizedImage)
-      throws IOException {
-    var baos = new ByteArrayOutputStream();
-    ImageIO.write(resizedImage, "jpeg", baos);
-    return new ByteArrayInputStream(baos.toByteArray());
+  /*
+   * The image is encoded straight into a pooled buffer, which is handed to the SDK without copying.
+   * The checksum is computed while the bytes are written.
+   */
+  private EncodeBuffer encode(BufferedImage image, DerivativeProfile profile,
+      ImageEncoder encoder) throws IOException {
+    // About one byte per pixel is enough for most images, the buffer grows when it is not
+    var buffer = encodeBufferPool.acquire(image.getWidth() * image.getHeight());
+    try {
+      encoder.encode(image, profile, buffer);
+    } catch (IOException e) {
+      encodeBufferPool.release(buffer);
+      throw e;
+    }
+    return buffer;
   }
 
-  public void uploadResults(BufferedImage image, String doi, boolean isThumbnail) throws ProcessingFailedException {
-    log.info("Uploading results to S3");
-    var strippedDoi = doi.replace("https://doi.org/" + applicationProperties.getPrefix() + "/", "");
-    var fileName = strippedDoi + '/' + strippedDoi + (isThumbnail ? "-thumbnail.jpeg" : "-derivative.jpeg");
+  /**
+   * Encodes the image and starts the upload to S3. The returned future completes when the upload
+   * has finished, use {@link #awaitUploads(Collection)} to wait for one or more uploads.
+   */
+  public CompletableFuture<PutObjectResponse> uploadResultsAsync(BufferedImage image, String doi,
+      DerivativeProfile profile, ImageHeader original) throws ProcessingFailedException {
+    log.info("Uploading {} results to S3", profile.getSuffix());
+    var encoder = encoderRegistry.getEncoder(profile.getFormat());
     try {
-      var inputStream = imageToInputStream(image);
-      s3Client.putObject(request ->
-              request
-                  .bucket(properties.getBucketName())
-                  .key(fileName),
-          AsyncRequestBody.fromBytes(inputStream.readAllBytes())).get();
+      var buffer = encode(image, profile, encoder);
+      return upload(buffer, getKey(doi, profile), encoder.getMimeType(),
+          toMetadata(image.getWidth(), image.getHeight(), original));
     } catch (IOException e) {
-      log.error("Failed to convert image to bytes through input stream", e);
+      log.error("Failed to encode image as {}", profile.getFormat(), e);
       throw new ProcessingFailedException();
+    }
+  }
+
+  /**
+   * Starts the upload of the unchanged original as the derivative of the profile. The file is read
+   * before this method returns, so it can be removed before the upload has finished.
+   */
+  public CompletableFuture<PutObjectResponse> uploadOriginalAsync(Path file, String doi,
+      DerivativeProfile profile, ImageHeader original) throws ProcessingFailedException {
+    log.info("Uploading original as {} results to S3", profile.getSuffix());
+    try {
+      var buffer = encodeBufferPool.acquire((int) Files.size(file));
+      try {
+        Files.copy(file, buffer);
+      } catch (IOException e) {
+        encodeBufferPool.release(buffer);
+        throw e;
+      }
+      return upload(buffer, getKey(doi, profile), original.mimeType(),
+          toMetadata(original.width(), original.height(), original));
+    } catch (IOException e) {
+      log.error("Failed to read original image from {}", file, e);
+      throw new ProcessingFailedException();
+    }
+  }
+
+  /**
+   * The key of the derivative of the profile: {@code <id>/<id>-<suffix>.<format>}, with the id
+   * being the DOI without the proxy and prefix and the format in its canonical name.
+   */
+  public String getKey(String doi, DerivativeProfile profile) {
+    var strippedDoi = doi.replace("https://doi.org/" + applicationProperties.getPrefix() + "/", "");
+    return strippedDoi + '/' + strippedDoi + '-' + profile.getSuffix() + '.'
+        + encoderRegistry.getFormat(profile.getFormat());
+  }
+
+  private static Map<String, String> toMetadata(int width, int height, ImageHeader original) {
+    return Map.of(
+        WIDTH, String.valueOf(width),
+        HEIGHT, String.valueOf(height),
+        ORIGINAL_WIDTH, String.valueOf(original.width()),
+        ORIGINAL_HEIGHT, String.valueOf(original.height()));
+  }
+
+  private CompletableFuture<PutObjectResponse> upload(EncodeBuffer buffer, String key,
+      String contentType, Map<String, String> metadata) {
+    var upload = s3Client.putObject(request ->
+            request
+                .bucket(properties.getBucketName())
+                .key(key)
+                .contentType(contentType)
+                .metadata(metadata)
+                .contentLength((long) buffer.size())
+                .checksumAlgorithm(ChecksumAlgorithm.CRC32_C)
+                .checksumCRC32C(buffer.getChecksum()),
+        AsyncRequestBody.fromByteBufferUnsafe(buffer.toByteBuffer()));
+    upload.whenComplete((response, throwable) -> encodeBufferPool.release(buffer));
+    return upload;
+  }
+
+  /**
+   * Looks up the stored derivative of the profile with a HeadObject request. The future completes
+   * with null when the derivative is not stored, was stored without its dimensions, or could not
+   * be looked up; the derivative is then generated again.
+   */
+  public CompletableFuture<StoredDerivative> findDerivativeAsync(String doi,
+      DerivativeProfile profile) {
+    var key = getKey(doi, profile);
+    return s3Client.headObject(request -> request.bucket(properties.getBucketName()).key(key))
+        .handle((response, throwable) -> {
+          if (throwable == null) {
+            return toStoredDerivative(key, response);
+          }
+          var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+          if (!(cause instanceof NoSuchKeyException)) {
+            log.warn("Failed to look up derivative {} in S3", key, cause);
+          }
+          return null;
+        });
+  }
+
+  private static StoredDerivative toStoredDerivative(String key, HeadObjectResponse response) {
+    var metadata = response.metadata();
+    try {
+      return new StoredDerivative(
+          Integer.parseInt(metadata.get(WIDTH)),
+          Integer.parseInt(metadata.get(HEIGHT)),
+          Integer.parseInt(metadata.get(ORIGINAL_WIDTH)),
+          Integer.parseInt(metadata.get(ORIGINAL_HEIGHT)));
+    } catch (NumberFormatException e) {
+      log.info("Derivative {} was stored without its dimensions", key);
+      return null;
+    }
+  }
+
+  /**
+   * Lists all keys of the bucket, one page of ListObjectsV2 at a time. The returned future
+   * completes when the last page has been handed to the consumer.
+   */
+  public CompletableFuture<Void> listKeys(Consumer<String> consumer) {
+    return s3Client.listObjectsV2Paginator(request -> request.bucket(properties.getBucketName()))
+        .subscribe(response -> response.contents()
+            .forEach(object -> consumer.accept(object.key())));
+  }
+
+  public void awaitUploads(Collection<? extends CompletableFuture<?>> uploads)
+      throws S3UploadException {
+    try {
+      CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).get();
     } catch (ExecutionException e) {
       log.error("Failed to upload image to s3", e);
       throw new S3UploadException();
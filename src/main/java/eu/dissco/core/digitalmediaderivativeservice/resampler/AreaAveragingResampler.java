@@ -0,0 +1,40 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Box filter, every target pixel is the average of the source pixels it covers, weighted by the
+ * covered area. This is the cheapest filter that does not alias when downscaling.
+ */
+@Component
+public class AreaAveragingResampler extends SeparableFilterResampler {
+
+  public AreaAveragingResampler() {
+    this(RowBandExecutor.SEQUENTIAL, FilterKernel.SCALAR);
+  }
+
+  @Autowired
+  public AreaAveragingResampler(RowBandExecutor bandExecutor, FilterKernel kernel) {
+    super(bandExecutor, kernel);
+  }
+
+  @Override
+  public ResamplerType getType() {
+    return ResamplerType.AREA_AVERAGING;
+  }
+
+  @Override
+  public double getSupport(double filterScale) {
+    return filterScale / 2 + 0.5;
+  }
+
+  @Override
+  public double getWeight(double distance, double filterScale) {
+    // Overlap of the source pixel with the footprint of the target pixel
+    var overlap = Math.min(distance + 0.5, filterScale / 2)
+        - Math.max(distance - 0.5, -filterScale / 2);
+    return Math.max(0.0, overlap);
+  }
+
+}
@@ -0,0 +1,67 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+/**
+ * Precomputed filter taps for one axis. For every output coordinate it holds the first source
+ * coordinate and the fixed-point weights of the source coordinates that contribute to it. The
+ * weights of one output coordinate are stored at {@code index * maxLength}.
+ */
+record Contributions(int[] start, int[] length, int[] weights, int maxLength) {
+
+  static final int PRECISION_BITS = 14;
+  static final int ROUNDING = 1 << (PRECISION_BITS - 1);
+
+  interface Filter {
+
+    // The number of source pixels on each side of the centre that can have a non-zero weight
+    double getSupport(double filterScale);
+
+    // The weight of a source pixel at the given distance (in source pixels) from the centre
+    double getWeight(double distance, double filterScale);
+
+  }
+
+  static Contributions compute(Filter filter, int sourceSize, int targetSize) {
+    var scale = (double) sourceSize / targetSize;
+    // When downscaling the filter is widened so every source pixel contributes
+    var filterScale = Math.max(scale, 1.0);
+    var support = filter.getSupport(filterScale);
+    var maxLength = (int) Math.ceil(support * 2) + 1;
+    var start = new int[targetSize];
+    var length = new int[targetSize];
+    var weights = new int[targetSize * maxLength];
+    var values = new double[maxLength];
+    for (int i = 0; i < targetSize; i++) {
+      var center = (i + 0.5) * scale;
+      var from = Math.max(0, (int) Math.floor(center - support));
+      var to = Math.min(sourceSize, (int) Math.ceil(center + support));
+      var count = Math.min(to - from, maxLength);
+      var sum = 0.0;
+      for (int j = 0; j < count; j++) {
+        values[j] = filter.getWeight(from + j + 0.5 - center, filterScale);
+        sum += values[j];
+      }
+      if (sum == 0.0) {
+        // Can only happen on the edges, fall back to the nearest source pixel
+        from = Math.min(sourceSize - 1, (int) center);
+        count = 1;
+        values[0] = 1.0;
+        sum = 1.0;
+      }
+      start[i] = from;
+      length[i] = count;
+      for (int j = 0; j < count; j++) {
+        weights[i * maxLength + j] = (int) Math.round(values[j] / sum * (1 << PRECISION_BITS));
+      }
+    }
+    return new Contributions(start, length, weights, maxLength);
+  }
+
+  static int clamp(int value) {
+    value >>= PRECISION_BITS;
+    if (value < 0) {
+      return 0;
+    }
+    return Math.min(value, 255);
+  }
+
+}
@@ -0,0 +1,45 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+/**
+ * Runs the passes of a {@link SeparableFilterResampler} over a band of rows. All kernels produce
+ * exactly the same pixels, they only differ in how the multiply-accumulate loops are executed.
+ */
+public interface FilterKernel {
+
+  FilterKernel SCALAR = new ScalarFilterKernel();
+
+  String VECTOR_MODULE = "jdk.incubator.vector";
+
+  /**
+   * The Vector API is an incubator module, it is only available when the JVM is started with
+   * {@code --add-modules jdk.incubator.vector}. The kernel that uses it is only compiled with the
+   * {@code vector} Maven profile, so the default build does not need the module.
+   */
+  static boolean isVectorAvailable() {
+    return ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()
+        && FilterKernel.class.getResource("VectorFilterKernel.class") != null;
+  }
+
+  /**
+   * Returns the kernel that uses the Vector API, which must only be called when
+   * {@link #isVectorAvailable()}.
+   */
+  static FilterKernel vector() {
+    try {
+      // Loaded by name, the default build does not contain the class
+      return (FilterKernel) Class.forName(FilterKernel.class.getPackageName()
+          + ".VectorFilterKernel").getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("The Vector API kernel is not available", e);
+    }
+  }
+
+  // Filters the rows fromRow (inclusive) to toRow (exclusive) of the source horizontally
+  void horizontalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow);
+
+  // Produces the rows fromRow (inclusive) to toRow (exclusive) of the target
+  void verticalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow);
+
+}
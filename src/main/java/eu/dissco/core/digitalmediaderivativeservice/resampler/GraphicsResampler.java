@@ -0,0 +1,32 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import org.springframework.stereotype.Component;
+
+@Component
+public class GraphicsResampler implements Resampler {
+
+  @Override
+  public ResamplerType getType() {
+    return ResamplerType.GRAPHICS;
+  }
+
+  @Override
+  public BufferedImage resample(BufferedImage source, int width, int height) {
+    var resizedImage = new BufferedImage(width, height, getTargetType(source));
+    var graphics2D = resizedImage.createGraphics();
+    // Transparent pixels are drawn onto white, like the other resamplers do
+    graphics2D.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+    graphics2D.dispose();
+    return resizedImage;
+  }
+
+  private static int getTargetType(BufferedImage source) {
+    return switch (source.getType()) {
+      case BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_3BYTE_BGR -> source.getType();
+      default -> BufferedImage.TYPE_INT_RGB;
+    };
+  }
+
+}
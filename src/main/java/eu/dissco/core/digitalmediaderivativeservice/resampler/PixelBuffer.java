@@ -0,0 +1,187 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import eu.dissco.core.digitalmediaderivativeservice.component.RasterPool;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+
+/**
+ * Interleaved 8-bit pixels, either BGR (the layout of {@link BufferedImage#TYPE_3BYTE_BGR}) or gray
+ * (the layout of {@link BufferedImage#TYPE_BYTE_GRAY}). The resamplers work on this buffer so they
+ * do not have to go through the (slow) generic raster accessors for every pixel.
+ *
+ * <p>Gray images stay gray, other images are converted to BGR. Transparent pixels are composited
+ * onto white, as the derivatives have no alpha channel. CMYK pixels (including YCCK JPEGs, which
+ * the reader converts to CMYK) are converted with the naive formula instead of the ICC conversion
+ * of Java2D, which is orders of magnitude slower.
+ */
+public record PixelBuffer(byte[] data, int width, int height, int channels) {
+
+  public static final int BGR = 3;
+  public static final int GRAY = 1;
+
+  /**
+   * Creates a buffer for a raster that will be completely overwritten. The pixels are taken from
+   * the {@link RasterPool} when the current thread holds a lease, so their initial value is
+   * undefined and the array can be larger than the raster.
+   */
+  public static PixelBuffer create(int width, int height, int channels) {
+    return new PixelBuffer(RasterPool.allocate(width * height * channels), width, height,
+        channels);
+  }
+
+  public static PixelBuffer of(BufferedImage image) {
+    var width = image.getWidth();
+    var height = image.getHeight();
+    if (isPlain(image, BufferedImage.TYPE_3BYTE_BGR, BGR)) {
+      // The resamplers never write into the source, so the raster can be used as is
+      return new PixelBuffer(((DataBufferByte) image.getRaster().getDataBuffer()).getData(),
+          width, height, BGR);
+    }
+    if (isPlain(image, BufferedImage.TYPE_BYTE_GRAY, GRAY)) {
+      return new PixelBuffer(((DataBufferByte) image.getRaster().getDataBuffer()).getData(),
+          width, height, GRAY);
+    }
+    var colorSpaceType = image.getColorModel().getColorSpace().getType();
+    if (colorSpaceType == ColorSpace.TYPE_GRAY) {
+      return ofGray(image);
+    }
+    if (colorSpaceType == ColorSpace.TYPE_CMYK && image.getRaster().getNumBands() == 4) {
+      return ofCmyk(image);
+    }
+    var buffer = create(width, height, BGR);
+    var data = buffer.data();
+    if (image.getType() == BufferedImage.TYPE_INT_RGB
+        && image.getRaster().getDataBuffer() instanceof DataBufferInt dataBuffer
+        && dataBuffer.getSize() == width * height && dataBuffer.getOffset() == 0
+        && image.getRaster().getSampleModelTranslateX() == 0
+        && image.getRaster().getSampleModelTranslateY() == 0) {
+      unpack(dataBuffer.getData(), 0, data, 0, width * height);
+      return buffer;
+    }
+    var hasAlpha = image.getColorModel().hasAlpha();
+    var row = new int[width];
+    for (int y = 0; y < height; y++) {
+      image.getRGB(0, y, width, 1, row, 0, width);
+      if (hasAlpha) {
+        unpackOnWhite(row, data, y * width * BGR, width);
+      } else {
+        unpack(row, 0, data, y * width * BGR, width);
+      }
+    }
+    return buffer;
+  }
+
+  private static boolean isPlain(BufferedImage image, int type, int channels) {
+    var raster = image.getRaster();
+    return image.getType() == type
+        && raster.getDataBuffer() instanceof DataBufferByte dataBuffer
+        && dataBuffer.getNumBanks() == 1 && dataBuffer.getOffset() == 0
+        && dataBuffer.getSize() == image.getWidth() * image.getHeight() * channels
+        && raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+  }
+
+  /*
+   * The samples are used as they are, getRGB would treat them as linear and brighten the image.
+   * Samples of more than 8 bits are reduced to 8 bits, an alpha band is composited onto white.
+   */
+  private static PixelBuffer ofGray(BufferedImage image) {
+    var width = image.getWidth();
+    var raster = image.getRaster();
+    var bands = raster.getNumBands();
+    var shift = Math.max(0, image.getColorModel().getComponentSize(0) - 8);
+    var alphaShift = bands > 1 ? Math.max(0, image.getColorModel().getComponentSize(1) - 8) : 0;
+    var buffer = create(width, image.getHeight(), GRAY);
+    var data = buffer.data();
+    var row = new int[width * bands];
+    var offset = 0;
+    for (int y = 0; y < image.getHeight(); y++) {
+      raster.getPixels(0, y, width, 1, row);
+      for (int x = 0; x < width; x++) {
+        var gray = row[x * bands] >> shift;
+        if (bands > 1) {
+          gray = onWhite(gray, row[x * bands + 1] >> alphaShift);
+        }
+        data[offset++] = (byte) gray;
+      }
+    }
+    return buffer;
+  }
+
+  private static PixelBuffer ofCmyk(BufferedImage image) {
+    var width = image.getWidth();
+    var raster = image.getRaster();
+    var shift = Math.max(0, image.getColorModel().getComponentSize(0) - 8);
+    var buffer = create(width, image.getHeight(), BGR);
+    var data = buffer.data();
+    var row = new int[width * 4];
+    var offset = 0;
+    for (int y = 0; y < image.getHeight(); y++) {
+      raster.getPixels(0, y, width, 1, row);
+      for (int i = 0; i < row.length; i += 4) {
+        var black = 255 - (row[i + 3] >> shift);
+        data[offset++] = (byte) ((255 - (row[i + 2] >> shift)) * black / 255);
+        data[offset++] = (byte) ((255 - (row[i + 1] >> shift)) * black / 255);
+        data[offset++] = (byte) ((255 - (row[i] >> shift)) * black / 255);
+      }
+    }
+    return buffer;
+  }
+
+  private static void unpack(int[] rgb, int rgbOffset, byte[] bgr, int bgrOffset, int pixels) {
+    for (int i = 0; i < pixels; i++) {
+      var pixel = rgb[rgbOffset + i];
+      var offset = bgrOffset + i * BGR;
+      bgr[offset] = (byte) pixel;
+      bgr[offset + 1] = (byte) (pixel >> 8);
+      bgr[offset + 2] = (byte) (pixel >> 16);
+    }
+  }
+
+  private static void unpackOnWhite(int[] argb, byte[] bgr, int bgrOffset, int pixels) {
+    for (int i = 0; i < pixels; i++) {
+      var pixel = argb[i];
+      var alpha = pixel >>> 24;
+      var offset = bgrOffset + i * BGR;
+      bgr[offset] = (byte) onWhite(pixel & 0xFF, alpha);
+      bgr[offset + 1] = (byte) onWhite((pixel >> 8) & 0xFF, alpha);
+      bgr[offset + 2] = (byte) onWhite((pixel >> 16) & 0xFF, alpha);
+    }
+  }
+
+  private static int onWhite(int value, int alpha) {
+    return (value * alpha + 255 * (255 - alpha) + 127) / 255;
+  }
+
+  /**
+   * Returns the pixels to the pool when the buffer is no longer used. Does nothing when they were
+   * not taken from the lease of the current thread, for example when they wrap an image.
+   */
+  public void release() {
+    RasterPool.release(data);
+  }
+
+  /**
+   * Wraps the pixels in a {@link BufferedImage#TYPE_3BYTE_BGR} or
+   * {@link BufferedImage#TYPE_BYTE_GRAY} image without copying them.
+   */
+  public BufferedImage toImage() {
+    var bandOffsets = channels == GRAY ? new int[]{0} : new int[]{2, 1, 0};
+    var sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height,
+        channels, width * channels, bandOffsets);
+    var raster = Raster.createWritableRaster(sampleModel,
+        new DataBufferByte(data, width * height * channels), null);
+    var colorSpace = ColorSpace.getInstance(channels == GRAY ? ColorSpace.CS_GRAY
+        : ColorSpace.CS_sRGB);
+    var colorModel = new ComponentColorModel(colorSpace, false, false, Transparency.OPAQUE,
+        DataBuffer.TYPE_BYTE);
+    return new BufferedImage(colorModel, raster, false, null);
+  }
+
+}
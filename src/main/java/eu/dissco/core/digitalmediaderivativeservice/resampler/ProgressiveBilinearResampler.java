@@ -0,0 +1,94 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Halves the image with a 2x2 average until it is less than twice the target size and does the
+ * remaining step with bilinear interpolation. Bilinear interpolation on its own skips source
+ * pixels when downscaling by more than a factor two, the halving steps prevent that.
+ */
+@Component
+public class ProgressiveBilinearResampler extends SeparableFilterResampler {
+
+  public ProgressiveBilinearResampler() {
+    this(RowBandExecutor.SEQUENTIAL, FilterKernel.SCALAR);
+  }
+
+  @Autowired
+  public ProgressiveBilinearResampler(RowBandExecutor bandExecutor, FilterKernel kernel) {
+    super(bandExecutor, kernel);
+  }
+
+  @Override
+  public ResamplerType getType() {
+    return ResamplerType.PROGRESSIVE_BILINEAR;
+  }
+
+  @Override
+  public PixelBuffer resample(PixelBuffer source, int width, int height) {
+    var current = source;
+    while (current.width() >= width * 2 && current.height() >= height * 2) {
+      var halved = halve(current);
+      if (current != source) {
+        current.release();
+      }
+      current = halved;
+    }
+    if (current.width() == width && current.height() == height) {
+      return current == source ? copy(source) : current;
+    }
+    var result = super.resample(current, width, height);
+    if (current != source) {
+      current.release();
+    }
+    return result;
+  }
+
+  @Override
+  public double getSupport(double filterScale) {
+    return 1.0;
+  }
+
+  @Override
+  public double getWeight(double distance, double filterScale) {
+    // Plain bilinear interpolation, the filter is deliberately not widened when downscaling
+    var x = Math.abs(distance);
+    return x < 1.0 ? 1.0 - x : 0.0;
+  }
+
+  private PixelBuffer halve(PixelBuffer source) {
+    var target = PixelBuffer.create(source.width() / 2, source.height() / 2,
+        source.channels());
+    bandExecutor.execute(target.height(), (long) source.width() * source.height(),
+        (fromRow, toRow) -> halve(source, target, fromRow, toRow));
+    return target;
+  }
+
+  private static void halve(PixelBuffer source, PixelBuffer target, int fromRow, int toRow) {
+    var sourceData = source.data();
+    var targetData = target.data();
+    var channels = source.channels();
+    var sourceRow = source.width() * channels;
+    var targetOffset = fromRow * target.width() * channels;
+    for (int y = fromRow; y < toRow; y++) {
+      var top = y * 2 * sourceRow;
+      var bottom = top + sourceRow;
+      for (int x = 0; x < target.width(); x++) {
+        for (int c = 0; c < channels; c++) {
+          var left = x * 2 * channels + c;
+          var right = left + channels;
+          var sum = (sourceData[top + left] & 0xFF) + (sourceData[top + right] & 0xFF)
+              + (sourceData[bottom + left] & 0xFF) + (sourceData[bottom + right] & 0xFF);
+          targetData[targetOffset++] = (byte) ((sum + 2) >> 2);
+        }
+      }
+    }
+  }
+
+  private static PixelBuffer copy(PixelBuffer source) {
+    return new PixelBuffer(source.data().clone(), source.width(), source.height(),
+        source.channels());
+  }
+
+}
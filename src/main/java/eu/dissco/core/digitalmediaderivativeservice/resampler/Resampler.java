@@ -0,0 +1,11 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.awt.image.BufferedImage;
+
+public interface Resampler {
+
+  ResamplerType getType();
+
+  BufferedImage resample(BufferedImage source, int width, int height);
+
+}
@@ -0,0 +1,25 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ResamplerRegistry {
+
+  private final Map<ResamplerType, Resampler> resamplers = new EnumMap<>(ResamplerType.class);
+
+  public ResamplerRegistry(List<Resampler> resamplers) {
+    resamplers.forEach(resampler -> this.resamplers.put(resampler.getType(), resampler));
+  }
+
+  public Resampler getResampler(ResamplerType type) {
+    var resampler = resamplers.get(type);
+    if (resampler == null) {
+      throw new IllegalArgumentException("No resampler available of type: " + type);
+    }
+    return resampler;
+  }
+
+}
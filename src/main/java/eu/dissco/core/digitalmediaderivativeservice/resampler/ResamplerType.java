@@ -0,0 +1,12 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+public enum ResamplerType {
+  // Single Graphics2D.drawImage with the default rendering hints, fast but aliased
+  GRAPHICS,
+  // Repeated 2x2 halving followed by a bilinear final step
+  PROGRESSIVE_BILINEAR,
+  // Box filter, every source pixel contributes according to the area it covers
+  AREA_AVERAGING,
+  // Separable Lanczos filter with a support of 3 lobes, sharpest but slowest
+  LANCZOS3
+}
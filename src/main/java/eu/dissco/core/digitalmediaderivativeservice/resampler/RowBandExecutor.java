@@ -0,0 +1,86 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits a pass over the rows of a raster into bands that are processed in parallel on a
+ * dedicated fork-join pool. Every row is written by exactly one band and the rows do not depend on
+ * each other, so the result is identical to processing all rows on the calling thread. Passes
+ * below the threshold are not worth the hand-off and run on the calling thread.
+ */
+@Slf4j
+public class RowBandExecutor {
+
+  public static final RowBandExecutor SEQUENTIAL = new RowBandExecutor(1, Long.MAX_VALUE);
+
+  private static final int MIN_BAND_ROWS = 16;
+  // More bands than threads, so a thread that finishes early can steal the remaining work
+  private static final int BANDS_PER_THREAD = 4;
+
+  private final ForkJoinPool pool;
+  private final long parallelThreshold;
+
+  public RowBandExecutor(int parallelism, long parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+    this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+    log.debug("Resizing with a parallelism of {}", parallelism);
+  }
+
+  /**
+   * Processes the rows from 0 up to the given number of rows.
+   *
+   * @param rows   the number of rows of the pass
+   * @param pixels the number of source pixels the pass reads, as a measure of its cost
+   * @param band   processes the rows from fromRow (inclusive) to toRow (exclusive)
+   */
+  public void execute(int rows, long pixels, Band band) {
+    if (pool == null || pixels < parallelThreshold || rows < MIN_BAND_ROWS * 2) {
+      band.process(0, rows);
+      return;
+    }
+    var bandRows = Math.max(MIN_BAND_ROWS,
+        Math.ceilDiv(rows, pool.getParallelism() * BANDS_PER_THREAD));
+    pool.invoke(new BandTask(band, 0, rows, bandRows));
+  }
+
+  public void shutdown() {
+    if (pool != null) {
+      pool.shutdown();
+    }
+  }
+
+  @FunctionalInterface
+  public interface Band {
+
+    void process(int fromRow, int toRow);
+  }
+
+  private static class BandTask extends RecursiveAction {
+
+    private final transient Band band;
+    private final int fromRow;
+    private final int toRow;
+    private final int bandRows;
+
+    private BandTask(Band band, int fromRow, int toRow, int bandRows) {
+      this.band = band;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+      this.bandRows = bandRows;
+    }
+
+    @Override
+    protected void compute() {
+      if (toRow - fromRow <= bandRows) {
+        band.process(fromRow, toRow);
+        return;
+      }
+      var middle = (fromRow + toRow) >>> 1;
+      invokeAll(new BandTask(band, fromRow, middle, bandRows),
+          new BandTask(band, middle, toRow, bandRows));
+    }
+  }
+
+}
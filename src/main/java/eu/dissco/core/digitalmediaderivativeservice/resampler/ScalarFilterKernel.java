@@ -0,0 +1,89 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.ROUNDING;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.clamp;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.PixelBuffer.BGR;
+
+class ScalarFilterKernel implements FilterKernel {
+
+  @Override
+  public void horizontalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow) {
+    if (source.channels() == PixelBuffer.GRAY) {
+      horizontalPassGray(source, target, contributions, fromRow, toRow);
+      return;
+    }
+    var sourceData = source.data();
+    var targetData = target.data();
+    var weights = contributions.weights();
+    var maxLength = contributions.maxLength();
+    for (int y = fromRow; y < toRow; y++) {
+      var sourceRow = y * source.width() * BGR;
+      var targetOffset = y * target.width() * BGR;
+      for (int x = 0; x < target.width(); x++) {
+        var offset = sourceRow + contributions.start()[x] * BGR;
+        var weightOffset = x * maxLength;
+        int b = ROUNDING;
+        int g = ROUNDING;
+        int r = ROUNDING;
+        for (int k = 0; k < contributions.length()[x]; k++) {
+          var weight = weights[weightOffset + k];
+          b += (sourceData[offset] & 0xFF) * weight;
+          g += (sourceData[offset + 1] & 0xFF) * weight;
+          r += (sourceData[offset + 2] & 0xFF) * weight;
+          offset += BGR;
+        }
+        targetData[targetOffset++] = (byte) clamp(b);
+        targetData[targetOffset++] = (byte) clamp(g);
+        targetData[targetOffset++] = (byte) clamp(r);
+      }
+    }
+  }
+
+  private static void horizontalPassGray(PixelBuffer source, PixelBuffer target,
+      Contributions contributions, int fromRow, int toRow) {
+    var sourceData = source.data();
+    var targetData = target.data();
+    var weights = contributions.weights();
+    var maxLength = contributions.maxLength();
+    for (int y = fromRow; y < toRow; y++) {
+      var sourceRow = y * source.width();
+      var targetOffset = y * target.width();
+      for (int x = 0; x < target.width(); x++) {
+        var offset = sourceRow + contributions.start()[x];
+        var weightOffset = x * maxLength;
+        int value = ROUNDING;
+        for (int k = 0; k < contributions.length()[x]; k++) {
+          value += (sourceData[offset + k] & 0xFF) * weights[weightOffset + k];
+        }
+        targetData[targetOffset++] = (byte) clamp(value);
+      }
+    }
+  }
+
+  @Override
+  public void verticalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow) {
+    var sourceData = source.data();
+    var targetData = target.data();
+    var weights = contributions.weights();
+    var maxLength = contributions.maxLength();
+    var rowLength = target.width() * target.channels();
+    for (int y = fromRow; y < toRow; y++) {
+      var start = contributions.start()[y];
+      var length = contributions.length()[y];
+      var weightOffset = y * maxLength;
+      var targetOffset = y * rowLength;
+      for (int i = 0; i < rowLength; i++) {
+        int value = ROUNDING;
+        var offset = start * rowLength + i;
+        for (int k = 0; k < length; k++) {
+          value += (sourceData[offset] & 0xFF) * weights[weightOffset + k];
+          offset += rowLength;
+        }
+        targetData[targetOffset + i] = (byte) clamp(value);
+      }
+    }
+  }
+
+}
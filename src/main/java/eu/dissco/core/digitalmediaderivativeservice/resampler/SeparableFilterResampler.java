@@ -0,0 +1,45 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Resamples with a separable filter, first horizontally and then vertically. The weights are
+ * fixed-point integers so the result does not depend on floating point rounding, or on the kernel
+ * that runs the passes.
+ */
+public abstract class SeparableFilterResampler implements Resampler, Contributions.Filter {
+
+  protected final RowBandExecutor bandExecutor;
+  private final FilterKernel kernel;
+
+  protected SeparableFilterResampler(RowBandExecutor bandExecutor, FilterKernel kernel) {
+    this.bandExecutor = bandExecutor;
+    this.kernel = kernel;
+  }
+
+  @Override
+  public BufferedImage resample(BufferedImage source, int width, int height) {
+    var pixels = PixelBuffer.of(source);
+    var result = resample(pixels, width, height);
+    pixels.release();
+    return result.toImage();
+  }
+
+  public PixelBuffer resample(PixelBuffer source, int width, int height) {
+    var horizontal = Contributions.compute(this, source.width(), width);
+    var vertical = Contributions.compute(this, source.height(), height);
+    var intermediate = PixelBuffer.create(width, source.height(), source.channels());
+    try {
+      var sourcePixels = (long) source.width() * source.height();
+      bandExecutor.execute(source.height(), sourcePixels, (fromRow, toRow) ->
+          kernel.horizontalPass(source, intermediate, horizontal, fromRow, toRow));
+      var target = PixelBuffer.create(width, height, source.channels());
+      bandExecutor.execute(height, (long) width * source.height(),
+          (fromRow, toRow) -> kernel.verticalPass(intermediate, target, vertical, fromRow, toRow));
+      return target;
+    } finally {
+      intermediate.release();
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.ROUNDING;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.clamp;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Area averaging downscale of an image that is delivered in horizontal strips, from top to bottom.
+ * Only the current strip and the accumulators of the output rows it contributes to are kept, so
+ * the complete source never has to be in memory. The result is identical to
+ * {@link AreaAveragingResampler} on the complete source.
+ */
+public class StreamingAreaAverager {
+
+  private final int sourceWidth;
+  private final int sourceHeight;
+  private final Contributions horizontal;
+  private final Contributions vertical;
+  private final int width;
+  private final int height;
+  // Created with the first strip, which determines whether the result is gray or BGR
+  private PixelBuffer target;
+  private int rowLength;
+  // Accumulators of the output rows from firstOpenRow up to nextStartRow (exclusive)
+  private final ArrayDeque<int[]> openRows = new ArrayDeque<>();
+  private final ArrayDeque<int[]> freeRows = new ArrayDeque<>();
+  private int firstOpenRow;
+  private int nextStartRow;
+  private int nextSourceRow;
+
+  public StreamingAreaAverager(int sourceWidth, int sourceHeight, int width, int height) {
+    var filter = new AreaAveragingResampler();
+    this.sourceWidth = sourceWidth;
+    this.sourceHeight = sourceHeight;
+    this.horizontal = Contributions.compute(filter, sourceWidth, width);
+    this.vertical = Contributions.compute(filter, sourceHeight, height);
+    this.width = width;
+    this.height = height;
+  }
+
+  public void accept(BufferedImage strip) {
+    if (strip.getWidth() != sourceWidth) {
+      throw new IllegalArgumentException(
+          "Strip has a width of " + strip.getWidth() + " instead of " + sourceWidth);
+    }
+    if (nextSourceRow + strip.getHeight() > sourceHeight) {
+      throw new IllegalArgumentException("Strip exceeds the height of the source");
+    }
+    var source = PixelBuffer.of(strip);
+    if (target == null) {
+      target = PixelBuffer.create(width, height, source.channels());
+      rowLength = width * source.channels();
+    } else if (source.channels() != target.channels()) {
+      throw new IllegalArgumentException("Strip has a different pixel layout than the source");
+    }
+    var rows = PixelBuffer.create(width, strip.getHeight(), source.channels());
+    FilterKernel.SCALAR.horizontalPass(source, rows, horizontal, 0, strip.getHeight());
+    for (int row = 0; row < strip.getHeight(); row++) {
+      accumulate(rows.data(), row * rowLength, nextSourceRow++);
+    }
+    rows.release();
+    source.release();
+  }
+
+  private void accumulate(byte[] data, int offset, int sourceRow) {
+    while (nextStartRow < height && vertical.start()[nextStartRow] <= sourceRow) {
+      openRows.addLast(newAccumulator());
+      nextStartRow++;
+    }
+    var outputRow = firstOpenRow;
+    for (var accumulator : openRows) {
+      var tap = sourceRow - vertical.start()[outputRow];
+      if (tap < vertical.length()[outputRow]) {
+        var weight = vertical.weights()[outputRow * vertical.maxLength() + tap];
+        for (int i = 0; i < rowLength; i++) {
+          accumulator[i] += (data[offset + i] & 0xFF) * weight;
+        }
+      }
+      outputRow++;
+    }
+    // Rows end in order, as both the start and the end of the windows are non-decreasing
+    while (firstOpenRow < nextStartRow
+        && vertical.start()[firstOpenRow] + vertical.length()[firstOpenRow] - 1 <= sourceRow) {
+      var accumulator = openRows.removeFirst();
+      var targetOffset = firstOpenRow * rowLength;
+      for (int i = 0; i < rowLength; i++) {
+        target.data()[targetOffset + i] = (byte) clamp(accumulator[i]);
+      }
+      freeRows.addLast(accumulator);
+      firstOpenRow++;
+    }
+  }
+
+  private int[] newAccumulator() {
+    var accumulator = freeRows.pollFirst();
+    if (accumulator == null) {
+      accumulator = new int[rowLength];
+    }
+    Arrays.fill(accumulator, ROUNDING);
+    return accumulator;
+  }
+
+  public BufferedImage getResult() {
+    if (nextSourceRow != sourceHeight) {
+      throw new IllegalStateException(
+          "Only " + nextSourceRow + " of " + sourceHeight + " rows have been received");
+    }
+    return target.toImage();
+  }
+
+}
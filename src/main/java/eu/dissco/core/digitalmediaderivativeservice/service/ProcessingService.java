@@ -1,32 +1,52 @@
 package eu.dissco.core.digitalmediaderivativeservice.service;
 
+import eu.dissco.core.digitalmediaderivativeservice.component.DerivativeIndex;
+import eu.dissco.core.digitalmediaderivativeservice.component.HeapBudgetComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.HostScheduler;
+import eu.dissco.core.digitalmediaderivativeservice.component.ImageDecoderComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.ImageFetchComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.NegativeCache;
+import eu.dissco.core.digitalmediaderivativeservice.component.ProcessingPipeline;
+import eu.dissco.core.digitalmediaderivativeservice.component.RasterPool;
 import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
 import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaWrapper;
+import eu.dissco.core.digitalmediaderivativeservice.domain.FetchedImage;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.domain.StoredDerivative;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.ImageEncoderRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageNotFoundException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
 import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
 import eu.dissco.core.digitalmediaderivativeservice.repository.S3Repository;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.PixelBuffer;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.ResamplerRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.StreamingAreaAverager;
 import eu.dissco.core.digitalmediaderivativeservice.schema.Agent.Type;
-import eu.dissco.core.digitalmediaderivativeservice.schema.CreateUpdateTombstoneEvent;
 import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMedia;
 import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMediaDerivative;
 import eu.dissco.core.digitalmediaderivativeservice.schema.Identifier.DctermsType;
-import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity;
 import eu.dissco.core.digitalmediaderivativeservice.utils.AgentUtils;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.IdentityHashMap;
 import java.util.List;
-import javax.imageio.ImageIO;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.stereotype.Service;
-import tools.jackson.databind.json.JsonMapper;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
 @Slf4j
 @Service
@@ -35,114 +55,348 @@ public class ProcessingService {
 
   public static final String DOI_PROXY = "https://doi.org/";
 
-  private final JsonMapper jsonMapper;
   private final ApplicationProperties properties;
   private final S3Repository s3Repository;
   private final RabbitMqPublisherService rabbitMqPublisherService;
+  private final ImageFetchComponent imageFetcher;
+  private final HostScheduler hostScheduler;
+  private final NegativeCache negativeCache;
+  private final DerivativeIndex derivativeIndex;
+  private final ImageDecoderComponent imageDecoder;
+  private final HeapBudgetComponent heapBudget;
+  private final RasterPool rasterPool;
+  private final ProcessingPipeline pipeline;
+  private final ResamplerRegistry resamplerRegistry;
+  private final ImageEncoderRegistry encoderRegistry;
 
-  private static BufferedImage downsizeImage(Pair<Float, Float> dimensions,
-      BufferedImage originalImage) {
-    var resizedImage = new BufferedImage(dimensions.getLeft().intValue(),
-        dimensions.getRight().intValue(), BufferedImage.TYPE_INT_RGB);
-    Graphics2D graphics2D = resizedImage.createGraphics();
-    graphics2D.drawImage(originalImage, 0, 0, dimensions.getLeft().intValue(),
-        dimensions.getRight().intValue(), null);
-    graphics2D.dispose();
-    return resizedImage;
+  /**
+   * Generates the derivatives of the media of a create event. The image is fetched, transformed and
+   * published in the stages of the {@link ProcessingPipeline}; this method only blocks while the
+   * fetch stage is full. When the {@link DerivativeIndex} finds all derivatives already stored, the
+   * Digital Media is published with the stored derivatives instead. The returned future completes
+   * when the derivatives are uploaded and the broker has confirmed the updated Digital Media event,
+   * and fails with a {@link ProcessingFailedException} when the media could not be processed.
+   */
+  public CompletableFuture<Void> handleMessage(DigitalMedia media) {
+    if (media.getDctermsFormat() != null && media.getDctermsFormat().equals("application/json")) {
+      log.info("DigitalMedia {} is of format application/json, skipping processing.",
+          media.getId());
+      return CompletableFuture.completedFuture(null);
+    }
+    URI accessUri;
+    try {
+      accessUri = parseAccessUri(media);
+    } catch (ImageRejectedException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    if (negativeCache.contains(media.getAcAccessURI())) {
+      log.warn("Skipping accessURI {} which recently could not be fetched or decoded",
+          media.getAcAccessURI());
+      return CompletableFuture.failedFuture(new ImageRejectedException(
+          "Recently failed to fetch or decode image for accessURI: " + media.getAcAccessURI()));
+    }
+    var published = derivativeIndex.mightHaveDerivatives(media.getId())
+        ? findStoredDerivatives(media, accessUri) : generate(media, accessUri);
+    // The confirm of the event is awaited outside of the publish stage
+    return published.thenCompose(confirmed -> confirmed)
+        .thenRun(() -> log.info("Successfully generated a derivative for DigitalMedia {}",
+            media.getId()));
   }
 
-  private static BufferedImage retrieveImage(DigitalMedia media)
-      throws ProcessingFailedException {
+  // An access URI that can not be fetched never will be, so the message is not retried
+  private static URI parseAccessUri(DigitalMedia media) throws ImageRejectedException {
+    var accessUri = media.getAcAccessURI();
+    if (accessUri == null || accessUri.isBlank()) {
+      throw new ImageRejectedException("DigitalMedia " + media.getId() + " has no accessURI");
+    }
     try {
-      if (media.getDctermsFormat() != null && media.getDctermsFormat().equals("application/json")) {
-        log.info("DigitalMedia {} is of format application/json, skipping processing.",
-            media.getId());
-        return null;
-      }
-      var originalImage = ImageIO.read(URI.create(media.getAcAccessURI()).toURL());
-      if (originalImage == null) {
-        log.error("Could not read image for accessURI: {}", media.getAcAccessURI());
-        throw new ProcessingFailedException(
-            "Could not read image for accessURI: " + media.getAcAccessURI());
+      var uri = new URI(accessUri.strip());
+      if (uri.getScheme() != null && uri.getHost() != null
+          && (uri.getScheme().equalsIgnoreCase("http")
+          || uri.getScheme().equalsIgnoreCase("https"))) {
+        return uri;
       }
-      return originalImage;
+    } catch (URISyntaxException e) {
+      log.debug("Unable to parse accessURI {}", accessUri, e);
+    }
+    throw new ImageRejectedException("Invalid accessURI: " + accessUri);
+  }
+
+  private CompletableFuture<CompletableFuture<Void>> generate(DigitalMedia media, URI accessUri) {
+    // The fetch waits outside of the pipeline while the image server is at its limits
+    return hostScheduler.schedule(accessUri,
+            () -> pipeline.fetch().submit(() -> fetch(media, accessUri)))
+        .thenCompose(fetched -> pipeline.transform().submit(() -> transform(fetched, media)))
+        .thenCompose(transformed -> pipeline.publish().submit(() -> publish(transformed, media)));
+  }
+
+  /*
+   * A possible hit of the index is confirmed with the metadata of the stored derivatives. The media
+   * is only generated again when one of them is missing, or when they were made from images of
+   * different sizes, so a redelivery after a failed publish does not fetch the image again. The
+   * lookups complete on a thread of the S3 client, which must
+   * not block on a full pipeline stage, so the media continues on the handoff of the pipeline.
+   */
+  private CompletableFuture<CompletableFuture<Void>> findStoredDerivatives(DigitalMedia media,
+      URI accessUri) {
+    var profiles = properties.getDerivativeProfiles();
+    var lookups = new ArrayList<CompletableFuture<StoredDerivative>>();
+    for (var profile : profiles) {
+      lookups.add(s3Repository.findDerivativeAsync(media.getId(), profile));
+    }
+    return CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+        .thenComposeAsync(found -> {
+          var derivatives = lookups.stream().map(CompletableFuture::join).toList();
+          if (derivatives.stream().anyMatch(Objects::isNull)) {
+            return generate(media, accessUri);
+          }
+          var original = derivatives.getFirst();
+          if (!derivatives.stream().allMatch(derivative ->
+              derivative.originalWidth() == original.originalWidth()
+                  && derivative.originalHeight() == original.originalHeight())) {
+            log.warn("Stored derivatives of DigitalMedia {} have different original sizes, "
+                + "generating them again", media.getId());
+            return generate(media, accessUri);
+          }
+          log.info("Derivatives of DigitalMedia {} are already stored, skipping the image",
+              media.getId());
+          return pipeline.publish().submit(() -> publishStored(derivatives, media));
+        }, pipeline.handoff());
+  }
+
+  private Fetched fetch(DigitalMedia media, URI accessUri) throws ProcessingFailedException {
+    log.info("Retrieving image for accessURI: {}", media.getAcAccessURI());
+    FetchedImage fetchedImage;
+    try {
+      fetchedImage = imageFetcher.fetch(accessUri);
+    } catch (ImageNotFoundException e) {
+      negativeCache.add(media.getAcAccessURI(), "was not found");
+      throw e;
+    }
+    // The spooled image is removed by the transform stage, or here when it never gets there
+    try {
+      return new Fetched(fetchedImage, readHeader(fetchedImage, media));
     } catch (IOException e) {
-      log.error("Error while reading image for accessURI: {}", media.getAcAccessURI(), e);
-      throw new ProcessingFailedException(
-          "Error while reading image for accessURI: " + media.getAcAccessURI());
+      deleteQuietly(fetchedImage);
+      throw readFailed(media, e);
+    } catch (ProcessingFailedException | RuntimeException e) {
+      deleteQuietly(fetchedImage);
+      throw e;
     }
   }
 
-  public void handleMessage(CreateUpdateTombstoneEvent event)
+  private Transformed transform(Fetched fetched, DigitalMedia media)
       throws ProcessingFailedException {
-    if (ProvActivity.Type.ODS_CREATE.equals(event.getProvActivity().getType())) {
-      log.info("Received Provenance: {}", event);
-      var media = retrieveMediaObject(event);
-      log.info("Retrieving image for accessURI: {}", media.getAcAccessURI());
-      var originalImage = retrieveImage(media);
-      if (originalImage != null) {
-        var derivativeImage = storeImage(originalImage, media, false);
-        var thumbnailImage = storeImage(originalImage, media, true);
-        updateOriginalMedia(media, originalImage);
-        setMediaDerivative(media, derivativeImage, false);
-        setMediaDerivative(media, thumbnailImage, true);
-        publishDigitalMedia(media);
-        log.info("Successfully generated a derivative for DigitalMedia {}", media.getId());
-      }
-    } else {
-      log.debug("Received non-create event, skipping processing: {}", event);
+    var uploads = new ArrayList<CompletableFuture<PutObjectResponse>>();
+    try (var fetchedImage = fetched.image()) {
+      var derivatives = createDerivatives(fetchedImage, fetched.header(), media, uploads);
+      return new Transformed(fetched.header(), derivatives, uploads);
+    } catch (IOException e) {
+      throw readFailed(media, e);
     }
   }
 
-  private BufferedImage storeImage(BufferedImage originalImage, DigitalMedia media,
-      boolean isThumbnail)
+  private CompletableFuture<Void> publish(Transformed transformed, DigitalMedia media)
       throws ProcessingFailedException {
-    var maxImageSize = getMaxImageSize(isThumbnail);
-    var dimension = getDimensions(originalImage, maxImageSize);
-    var resizedImage = downsizeImage(dimension, originalImage);
-    s3Repository.uploadResults(resizedImage, media.getId(), isThumbnail);
-    log.info(
-        "Finished uploading {} of image with id {}", isThumbnail ? "thumbnail" : "derivative",
+    updateOriginalMedia(media, transformed.header().width(), transformed.header().height());
+    for (var profile : properties.getDerivativeProfiles()) {
+      setMediaDerivative(media, transformed.derivatives().get(profile), profile);
+    }
+    // The uploads run concurrently, the event is only published when all have succeeded
+    s3Repository.awaitUploads(transformed.uploads());
+    log.info("Finished uploading {} derivatives of image with id {}", transformed.uploads().size(),
         media.getId());
-    return resizedImage;
+    derivativeIndex.addDerivatives(media.getId());
+    return publishDigitalMedia(media);
+  }
+
+  // The derivatives are in the order of the profiles and agree on the size of the original
+  private CompletableFuture<Void> publishStored(List<StoredDerivative> derivatives,
+      DigitalMedia media) throws ProcessingFailedException {
+    var original = derivatives.getFirst();
+    updateOriginalMedia(media, original.originalWidth(), original.originalHeight());
+    var profiles = properties.getDerivativeProfiles();
+    for (int i = 0; i < profiles.size(); i++) {
+      var derivative = derivatives.get(i);
+      setMediaDerivative(media, Pair.of(derivative.width(), derivative.height()), profiles.get(i));
+    }
+    return publishDigitalMedia(media);
+  }
+
+  private static ProcessingFailedException readFailed(DigitalMedia media, Exception e) {
+    log.error("Error while reading image for accessURI: {}", media.getAcAccessURI(), e);
+    return new ProcessingFailedException(
+        "Error while reading image for accessURI: " + media.getAcAccessURI());
+  }
+
+  private static void deleteQuietly(FetchedImage fetchedImage) {
+    try {
+      fetchedImage.close();
+    } catch (IOException e) {
+      log.warn("Unable to remove spooled image {}", fetchedImage.file(), e);
+    }
+  }
+
+  private ImageHeader readHeader(FetchedImage fetchedImage, DigitalMedia media)
+      throws IOException, ProcessingFailedException {
+    var header = imageDecoder.readHeader(fetchedImage.file());
+    if (header == null) {
+      log.error("Could not read image for accessURI: {}", media.getAcAccessURI());
+      negativeCache.add(media.getAcAccessURI(), "could not be read");
+      throw new ImageRejectedException(
+          "Could not read image for accessURI: " + media.getAcAccessURI());
+    }
+    heapBudget.checkPixels(header.width(), header.height());
+    return header;
+  }
+
+  /*
+   * Profiles for which the original can be used as is get the original bytes. The other profiles
+   * are resized from large to small, each profile is scaled from the previous (nearest larger)
+   * resized image instead of from the decoded original. The upload of a profile starts as soon as
+   * it has been resized. Returns the dimensions of the derivative of each profile.
+   */
+  private Map<DerivativeProfile, Pair<Integer, Integer>> createDerivatives(
+      FetchedImage fetchedImage, ImageHeader header, DigitalMedia media,
+      List<CompletableFuture<PutObjectResponse>> uploads)
+      throws IOException, ProcessingFailedException {
+    var derivatives = new IdentityHashMap<DerivativeProfile, Pair<Integer, Integer>>();
+    var resizeProfiles = new ArrayList<DerivativeProfile>();
+    for (var profile : getProfilesLargestFirst()) {
+      if (canPassThrough(header, profile)) {
+        log.debug("Using the original image of {} as {}", media.getId(), profile.getName());
+        uploads.add(s3Repository.uploadOriginalAsync(fetchedImage.file(), media.getId(), profile,
+            header));
+        derivatives.put(profile, Pair.of(header.width(), header.height()));
+      } else {
+        resizeProfiles.add(profile);
+      }
+    }
+    if (resizeProfiles.isEmpty()) {
+      return derivatives;
+    }
+    var maxOutputSize = resizeProfiles.getFirst().getMaxSize();
+    var rasterBytes = imageDecoder.estimateRasterBytes(header, maxOutputSize);
+    if (rasterBytes > properties.getStreamingThreshold().toBytes()) {
+      streamDerivatives(fetchedImage, header, media, resizeProfiles, uploads, derivatives);
+      return derivatives;
+    }
+    // The rasters are only referenced within this block, so the reservation covers their lifetime
+    // and the resized rasters can be returned to the pool at the end of it
+    try (var reservation = heapBudget.reserve(rasterBytes); var lease = rasterPool.lease()) {
+      var decodedImage = imageDecoder.decode(fetchedImage.file(), maxOutputSize);
+      if (decodedImage == null) {
+        throw decodeFailed(media);
+      }
+      resizeProfiles(decodedImage.image(), header, media, resizeProfiles, uploads, derivatives);
+    }
+    return derivatives;
+  }
+
+  /*
+   * The decoded raster of the original would be too large, so the largest profile is area averaged
+   * strip by strip while decoding. The smaller profiles are resized from its result as usual.
+   */
+  private void streamDerivatives(FetchedImage fetchedImage, ImageHeader header,
+      DigitalMedia media, List<DerivativeProfile> resizeProfiles,
+      List<CompletableFuture<PutObjectResponse>> uploads,
+      Map<DerivativeProfile, Pair<Integer, Integer>> derivatives)
+      throws IOException, ProcessingFailedException {
+    var largestProfile = resizeProfiles.getFirst();
+    var decodedDimension = imageDecoder.getDecodedDimension(header, largestProfile.getMaxSize());
+    var dimension = getDimensions(header, largestProfile.getMaxSize());
+    var width = dimension.getLeft().intValue();
+    var height = dimension.getRight().intValue();
+    var stripBytes = properties.getStripSize().toBytes();
+    log.info("Decoding image {} of {}x{} pixels in strips", media.getId(), header.width(),
+        header.height());
+    try (var reservation = heapBudget.reserve(
+        stripBytes + (long) width * height * PixelBuffer.BGR);
+        var lease = rasterPool.lease()) {
+      var averager = new StreamingAreaAverager(decodedDimension.width, decodedDimension.height,
+          width, height);
+      if (!imageDecoder.decodeStrips(fetchedImage.file(), largestProfile.getMaxSize(), stripBytes,
+          averager::accept)) {
+        throw decodeFailed(media);
+      }
+      var resizedImage = averager.getResult();
+      uploads.add(s3Repository.uploadResultsAsync(resizedImage, media.getId(), largestProfile,
+          header));
+      derivatives.put(largestProfile, Pair.of(width, height));
+      resizeProfiles(resizedImage, header, media,
+          resizeProfiles.subList(1, resizeProfiles.size()), uploads, derivatives);
+    }
+  }
+
+  private void resizeProfiles(BufferedImage sourceImage, ImageHeader header, DigitalMedia media,
+      List<DerivativeProfile> resizeProfiles, List<CompletableFuture<PutObjectResponse>> uploads,
+      Map<DerivativeProfile, Pair<Integer, Integer>> derivatives)
+      throws ProcessingFailedException {
+    for (var profile : resizeProfiles) {
+      var dimension = getDimensions(header, profile.getMaxSize());
+      var resizedImage = resamplerRegistry.getResampler(profile.getResampler())
+          .resample(sourceImage, dimension.getLeft().intValue(), dimension.getRight().intValue());
+      uploads.add(s3Repository.uploadResultsAsync(resizedImage, media.getId(), profile, header));
+      derivatives.put(profile, Pair.of(resizedImage.getWidth(), resizedImage.getHeight()));
+      sourceImage = resizedImage;
+    }
   }
 
-  private float getMaxImageSize(boolean isThumbnail) {
-    return isThumbnail ? properties.getMaxThumbnailImageSize()
-        : properties.getMaxDerivativeImageSize();
+  private ImageRejectedException decodeFailed(DigitalMedia media) {
+    log.error("Could not decode image for accessURI: {}", media.getAcAccessURI());
+    negativeCache.add(media.getAcAccessURI(), "could not be decoded");
+    return new ImageRejectedException(
+        "Could not decode image for accessURI: " + media.getAcAccessURI());
   }
 
-  private void publishDigitalMedia(DigitalMedia media) {
+  /*
+   * The original is only used when it fits the profile and the profile asks for the same format.
+   * CMYK and YCCK JPEGs are re-encoded, as most browsers do not render them correctly.
+   */
+  private boolean canPassThrough(ImageHeader header, DerivativeProfile profile)
+      throws ProcessingFailedException {
+    return profile.isPassThrough()
+        && Math.max(header.width(), header.height()) <= profile.getMaxSize()
+        && ImageDecoderComponent.JPEG_MIME_TYPE.equals(header.mimeType())
+        && header.mimeType().equals(encoderRegistry.getEncoder(profile.getFormat()).getMimeType())
+        && ("YCbCr".equals(header.colorSpace()) || "GRAY".equals(header.colorSpace()));
+  }
+
+  private List<DerivativeProfile> getProfilesLargestFirst() {
+    return properties.getDerivativeProfiles().stream()
+        .sorted(Comparator.comparing(DerivativeProfile::getMaxSize).reversed())
+        .toList();
+  }
+
+  private CompletableFuture<Void> publishDigitalMedia(DigitalMedia media) {
     var wrapper = new DigitalMediaWrapper(media.getType(), media, null);
     var event = new DigitalMediaEvent(Collections.emptySet(), wrapper, false, false);
-    rabbitMqPublisherService.publishDigitalMediaEvent(event);
+    return rabbitMqPublisherService.publishDigitalMediaEvent(event);
   }
 
-  private void updateOriginalMedia(DigitalMedia media, BufferedImage originalImage) {
+  private void updateOriginalMedia(DigitalMedia media, int width, int height) {
     media
-        .withExifPixelXDimension(originalImage.getWidth())
-        .withExifPixelYDimension(originalImage.getHeight());
+        .withExifPixelXDimension(width)
+        .withExifPixelYDimension(height);
   }
 
-  private void setMediaDerivative(DigitalMedia media, BufferedImage resizedImage,
-      boolean isThumbnail) {
+  private void setMediaDerivative(DigitalMedia media, Pair<Integer, Integer> dimensions,
+      DerivativeProfile profile) throws ProcessingFailedException {
     var now = Date.from(Instant.now());
-    var imageType = isThumbnail ? "Thumbnail" : "Derivative";
-    var maxImageSize = getMaxImageSize(isThumbnail);
     var derivative = new DigitalMediaDerivative()
-        .withAcAccessURI(generateAccessURI(media, isThumbnail))
-        .withDctermsTitle(imageType + " of " + media.getId())
+        .withAcAccessURI(generateAccessURI(media, profile))
+        .withDctermsTitle(profile.getName() + " of " + media.getId())
         .withDctermsDescription(
-            "Image " + imageType
+            "Image " + profile.getName()
                 + " created by DiSSCo after creation of the Digital Media, maximum size of "
-                + maxImageSize + " pixels on the longest side.")
-        .withExifPixelXDimension(resizedImage.getWidth())
-        .withExifPixelYDimension(resizedImage.getHeight())
+                + profile.getMaxSize() + " pixels on the longest side.")
+        .withExifPixelXDimension(dimensions.getLeft())
+        .withExifPixelYDimension(dimensions.getRight())
         .withDctermsCreated(now)
         .withOdsHasAgents(List.of(AgentUtils.createMachineAgent(properties.getName(),
             properties.getPid(), "media-derivative-service", DctermsType.DOI,
             Type.SCHEMA_SOFTWARE_APPLICATION)))
-        .withDctermsFormat("image/jpeg")
+        .withDctermsFormat(encoderRegistry.getEncoder(profile.getFormat()).getMimeType())
         .withDctermsModified(now)
         .withDctermsRights(media.getDctermsRights())
         .withAcSubtype(media.getAcSubtype())
@@ -160,32 +414,18 @@ public class ProcessingService {
     }
   }
 
-  private String generateAccessURI(DigitalMedia media, boolean isThumbnail) {
-    var baseUri = properties.getApiUrl() + stripDoiPrefix(media.getId());
-    if (isThumbnail) {
-      return baseUri + "/thumbnail";
-    } else {
-      return baseUri + "/derivative";
-    }
+  private String generateAccessURI(DigitalMedia media, DerivativeProfile profile) {
+    return properties.getApiUrl() + stripDoiPrefix(media.getId()) + '/' + profile.getSuffix();
   }
 
   private static String stripDoiPrefix(String id) {
     return id.replace(DOI_PROXY, "");
   }
 
-  private DigitalMedia retrieveMediaObject(CreateUpdateTombstoneEvent event)
-      throws ProcessingFailedException {
-    if (event.getProvEntity().getType().equals("ods:DigitalMedia")) {
-      return jsonMapper.convertValue(event.getProvEntity().getProvValue(),
-          DigitalMedia.class);
-    }
-    throw new ProcessingFailedException(
-        "Invalid provenance entity: " + jsonMapper.writeValueAsString(event));
-  }
-
-  private Pair<Float, Float> getDimensions(BufferedImage originalImage, Float maxImageSize) {
-    var width = originalImage.getWidth();
-    var height = originalImage.getHeight();
+  private Pair<Float, Float> getDimensions(ImageHeader header, Float maxImageSize) {
+    // Based on the original dimensions, the decoded image might have been subsampled
+    var width = header.width();
+    var height = header.height();
     var longestSide = Math.max(width, height);
     if (longestSide <= maxImageSize) {
       return Pair.of((float) width, (float) height);
@@ -199,4 +439,17 @@ public class ProcessingService {
     }
   }
 
+  private record Fetched(
+      FetchedImage image,
+      ImageHeader header) {
+
+  }
+
+  private record Transformed(
+      ImageHeader header,
+      Map<DerivativeProfile, Pair<Integer, Integer>> derivatives,
+      List<CompletableFuture<PutObjectResponse>> uploads) {
+
+  }
+
 }
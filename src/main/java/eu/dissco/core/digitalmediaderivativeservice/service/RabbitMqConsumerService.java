@@ -1,27 +1,156 @@
 package eu.dissco.core.digitalmediaderivativeservice.service;
 
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ShutdownSignalException;
+import eu.dissco.core.digitalmediaderivativeservice.component.MessageCompressionComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.ProvenanceEventReader;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ProvenanceEvent;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.InvalidEventException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
-import eu.dissco.core.digitalmediaderivativeservice.schema.CreateUpdateTombstoneEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.amqp.support.converter.MessageConversionException;
 import org.springframework.stereotype.Service;
-import tools.jackson.databind.json.JsonMapper;
+import tools.jackson.core.JacksonException;
 
 @Service
 @Slf4j
 @AllArgsConstructor
 public class RabbitMqConsumerService {
 
-  private final JsonMapper jsonMapper;
+  private final ProvenanceEventReader eventReader;
   private final ProcessingService processingService;
+  private final MessageCompressionComponent messageCompressionComponent;
+  private final RabbitMqRetryService retryService;
+  // The channel is not thread-safe, so all acknowledgements are sent from this single thread
+  private final ExecutorService acknowledger = Executors.newSingleThreadExecutor(
+      Thread.ofPlatform().name("rabbitmq-ack").daemon().factory());
 
+  /**
+   * Hands the messages to the pipeline and returns without waiting for them. Every message is
+   * acknowledged as soon as it is done, so a message that waits for its host does not hold up the
+   * others. The number of unacknowledged messages is bounded by the prefetch count.
+   */
   @RabbitListener(queues = {
       "${rabbitmq.queue-name:digital-media-derivative-queue}"}, containerFactory = "consumerBatchContainerFactory")
-  public void getMessage(@Payload String message) throws ProcessingFailedException {
-    var event = jsonMapper.readValue(message, CreateUpdateTombstoneEvent.class);
-    processingService.handleMessage(event);
+  public void getMessages(List<Message> messages, Channel channel) {
+    log.info("Received batch of {} messages", messages.size());
+    for (var message : messages) {
+      var deliveryTag = message.getMessageProperties().getDeliveryTag();
+      // Blocks while the pipeline is full, which pauses this consumer until it has room again
+      handleMessage(message).thenAcceptAsync(
+          result -> acknowledge(channel, deliveryTag, result), acknowledger);
+    }
+  }
+
+  private static void acknowledge(Channel channel, long deliveryTag, MessageResult result) {
+    try {
+      switch (result) {
+        case ACKNOWLEDGE -> channel.basicAck(deliveryTag, false);
+        case REQUEUE -> channel.basicNack(deliveryTag, false, true);
+      }
+    } catch (IOException | AmqpException | ShutdownSignalException e) {
+      // The broker redelivers the unacknowledged messages of a closed channel
+      log.warn("Unable to acknowledge message {}, it will be redelivered", deliveryTag, e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    acknowledger.shutdown();
+    if (!acknowledger.awaitTermination(5, TimeUnit.SECONDS)) {
+      log.warn("Stopped before all messages were acknowledged, they will be redelivered");
+    }
+  }
+
+  private CompletableFuture<MessageResult> handleMessage(Message message) {
+    ProvenanceEvent event;
+    try {
+      event = eventReader.read(messageCompressionComponent.getBody(message));
+    } catch (MessageConversionException | JacksonException e) {
+      log.error("Unable to parse message, message will be dead-lettered", e);
+      return forward(message, e, retryService::deadLetter);
+    } catch (InvalidEventException e) {
+      log.error("Message is not a valid event, message will be dead-lettered", e);
+      return forward(message, e, retryService::deadLetter);
+    }
+    if (!event.isCreate()) {
+      log.debug("Received {} event {}, skipping processing", event.activityType(), event.id());
+      return CompletableFuture.completedFuture(MessageResult.ACKNOWLEDGE);
+    }
+    log.info("Received create event {} of DigitalMedia {}", event.id(),
+        event.digitalMedia().getId());
+    try {
+      return processingService.handleMessage(event.digitalMedia())
+          .handle((result, throwable) -> toMessageResult(message, throwable))
+          .thenCompose(result -> result);
+    } catch (RuntimeException e) {
+      return toMessageResult(message, e);
+    }
+  }
+
+  /*
+   * Failed messages are forwarded to a retry queue or the dead letter queue and acknowledged once
+   * the broker has confirmed the forwarded message. Only when that fails the message is requeued,
+   * so it is not lost.
+   */
+  private CompletableFuture<MessageResult> toMessageResult(Message message, Throwable throwable) {
+    if (throwable == null) {
+      return CompletableFuture.completedFuture(MessageResult.ACKNOWLEDGE);
+    }
+    var cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+    switch (cause) {
+      case ImageRejectedException e -> {
+        log.error("Image can not be processed, message will be dead-lettered", e);
+        return forward(message, e, retryService::deadLetter);
+      }
+      case InvalidEventException e -> {
+        log.error("Message is not a valid event, message will be dead-lettered", e);
+        return forward(message, e, retryService::deadLetter);
+      }
+      case ProcessingFailedException e -> {
+        log.error("Failed to process message, message will be retried", e);
+        return forward(message, e, retryService::retry);
+      }
+      default -> {
+        log.error("Unexpected error while processing message, message will be retried", cause);
+        return forward(message, cause, retryService::retry);
+      }
+    }
+  }
+
+  private static CompletableFuture<MessageResult> forward(Message message, Throwable cause,
+      BiFunction<Message, Throwable, CompletableFuture<Void>> destination) {
+    try {
+      return destination.apply(message, cause).handle((result, throwable) -> {
+        if (throwable != null) {
+          log.error("Forwarded message was not confirmed, message will be requeued", throwable);
+          return MessageResult.REQUEUE;
+        }
+        return MessageResult.ACKNOWLEDGE;
+      });
+    } catch (AmqpException e) {
+      log.error("Unable to forward failed message, message will be requeued", e);
+      return CompletableFuture.completedFuture(MessageResult.REQUEUE);
+    }
+  }
+
+  private enum MessageResult {
+    ACKNOWLEDGE,
+    REQUEUE
   }
 
 }
@@ -1,26 +1,165 @@
 package eu.dissco.core.digitalmediaderivativeservice.service;
 
 import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
 import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Service;
-import tools.jackson.databind.json.JsonMapper;
 
+/**
+ * Publishes the Digital Media events. When the connection factory has publisher confirms enabled,
+ * the returned future only completes when the broker has confirmed the event, and fails when the
+ * event was nacked, returned as unroutable or not confirmed in time. The confirms are handled
+ * asynchronously, so no thread waits for them. With a linger time the events are collected until
+ * the batch is full or the linger time has passed, and then published together on one channel; each
+ * event is still a message of its own.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class RabbitMqPublisherService {
 
-  private final JsonMapper jsonMapper;
   private final RabbitTemplate rabbitTemplate;
   private final RabbitMqProperties rabbitMqProperties;
+  private final boolean confirms;
+  private final List<PendingEvent> batch = new ArrayList<>();
+  private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+      Thread.ofPlatform().name("publish-linger").daemon().factory());
+  private boolean flushScheduled;
+
+  public RabbitMqPublisherService(RabbitTemplate rabbitTemplate,
+      RabbitMqProperties rabbitMqProperties) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.rabbitMqProperties = rabbitMqProperties;
+    // Without confirms on the connection factory the broker never confirms, so nothing is awaited
+    this.confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+  }
+
+  /**
+   * Publishes the event, or adds it to the batch that is published next.
+   *
+   * @return a future that completes when the event is confirmed, or right away without confirms
+   */
+  public CompletableFuture<Void> publishDigitalMediaEvent(DigitalMediaEvent digitalMediaEvent) {
+    if (!confirms) {
+      rabbitTemplate.convertAndSend(rabbitMqProperties.getDigitalMediaExchangeName(),
+          rabbitMqProperties.getDigitalMediaRoutingKeyName(), digitalMediaEvent);
+      return CompletableFuture.completedFuture(null);
+    }
+    var pending = new PendingEvent(digitalMediaEvent, new CorrelationData(),
+        new CompletableFuture<>());
+    if (rabbitMqProperties.getPublishLinger().isZero()) {
+      publish(List.of(pending));
+      return pending.confirmed();
+    }
+    List<PendingEvent> full = null;
+    synchronized (batch) {
+      batch.add(pending);
+      if (batch.size() >= rabbitMqProperties.getPublishBatchSize()) {
+        full = drain();
+      } else if (!flushScheduled) {
+        flushScheduled = true;
+        // The publish blocks while the channel is busy, which should not hold up the timer
+        timer.schedule(() -> Thread.startVirtualThread(this::flush),
+            rabbitMqProperties.getPublishLinger().toNanos(), TimeUnit.NANOSECONDS);
+      }
+    }
+    if (full != null) {
+      publish(full);
+    }
+    return pending.confirmed();
+  }
+
+  private List<PendingEvent> drain() {
+    var events = new ArrayList<>(batch);
+    batch.clear();
+    return events;
+  }
+
+  private void flush() {
+    List<PendingEvent> events;
+    synchronized (batch) {
+      flushScheduled = false;
+      events = drain();
+    }
+    if (!events.isEmpty()) {
+      publish(events);
+    }
+  }
+
+  private void publish(List<PendingEvent> events) {
+    for (var pending : events) {
+      awaitConfirm(pending);
+    }
+    try {
+      rabbitTemplate.invoke(operations -> {
+        for (var pending : events) {
+          try {
+            operations.convertAndSend(rabbitMqProperties.getDigitalMediaExchangeName(),
+                rabbitMqProperties.getDigitalMediaRoutingKeyName(), pending.event(),
+                pending.correlation());
+          } catch (AmqpException e) {
+            pending.confirmed().completeExceptionally(e);
+          }
+        }
+        return null;
+      });
+    } catch (AmqpException e) {
+      // The channel could not be obtained, none of the events has been sent
+      log.error("Failed to publish {} events", events.size(), e);
+      events.forEach(pending -> pending.confirmed().completeExceptionally(e));
+    }
+    log.debug("Published {} events", events.size());
+  }
+
+  private void awaitConfirm(PendingEvent pending) {
+    var timeout = rabbitMqProperties.getPublisherConfirmTimeout();
+    pending.correlation().getFuture().orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+        .whenComplete((confirm, throwable) -> {
+          var correlation = pending.correlation();
+          if (throwable instanceof TimeoutException) {
+            pending.fail("Event was not confirmed within " + timeout);
+          } else if (throwable != null) {
+            pending.fail("Event was not confirmed: " + throwable.getMessage());
+          } else if (!confirm.ack()) {
+            pending.fail("Event was nacked by the broker: " + confirm.reason());
+          } else if (correlation.getReturned() != null) {
+            // The broker returns the event before its confirm when it could not be routed
+            pending.fail("Event was returned by the broker: "
+                + correlation.getReturned().getReplyText());
+          } else {
+            pending.confirmed().complete(null);
+          }
+        });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    timer.shutdownNow();
+    flush();
+  }
+
+  private record PendingEvent(
+      DigitalMediaEvent event,
+      CorrelationData correlation,
+      CompletableFuture<Void> confirmed) {
+
+    private void fail(String reason) {
+      log.error("Failed to publish event of DigitalMedia {}: {}",
+          event.digitalMediaWrapper().attributes().getId(), reason);
+      confirmed.completeExceptionally(new PublishFailedException(reason));
+    }
 
-  public void publishDigitalMediaEvent(DigitalMediaEvent digitalMediaEvent) {
-    rabbitTemplate.convertAndSend(rabbitMqProperties.getDigitalMediaExchangeName(),
-        rabbitMqProperties.getDigitalMediaRoutingKeyName(),
-        jsonMapper.writeValueAsString(digitalMediaEvent));
   }
 
 }
@@ -0,0 +1,160 @@
+package eu.dissco.core.digitalmediaderivativeservice.service;
+
+import static org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer.X_EXCEPTION_MESSAGE;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends failed messages to the retry queues and the dead letter queue. A retry queue holds the
+ * message for its delay (the TTL of the queue) and then dead-letters it back into the queue of the
+ * consumer. The number of retries is kept in a header of the message. When the connection factory
+ * has publisher confirms enabled, a forwarded message only counts as sent once the broker has
+ * confirmed it, so the original can be acknowledged without losing the message.
+ */
+@Slf4j
+@Service
+public class RabbitMqRetryService {
+
+  public static final String RETRY_COUNT_HEADER = "x-retry-count";
+  private static final String DEFAULT_EXCHANGE = "";
+  private static final MessagePropertiesConverter MESSAGE_PROPERTIES_CONVERTER =
+      new DefaultMessagePropertiesConverter();
+
+  private final RabbitTemplate rabbitTemplate;
+  private final RabbitMqProperties properties;
+  private final boolean confirms;
+
+  public RabbitMqRetryService(RabbitTemplate rabbitTemplate, RabbitMqProperties properties) {
+    this.rabbitTemplate = rabbitTemplate;
+    this.properties = properties;
+    this.confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+  }
+
+  /**
+   * Sends the message to the retry queue of its next attempt, or to the dead letter queue when it
+   * has been retried for every configured delay.
+   *
+   * @return a future that completes when the broker has confirmed the message, or right away
+   * without confirms; it fails with a {@link PublishFailedException} when the message was not
+   * confirmed
+   */
+  public CompletableFuture<Void> retry(Message message, Throwable cause) {
+    var retryCount = getRetryCount(message);
+    var retryDelays = properties.getRetryDelays();
+    if (retryCount >= retryDelays.size()) {
+      log.warn("Message failed after {} retries, sending it to the dead letter queue", retryCount);
+      return deadLetter(message, cause);
+    }
+    var delay = retryDelays.get(retryCount);
+    log.info("Retrying message in {} seconds, retry {} of {}", delay.toSeconds(), retryCount + 1,
+        retryDelays.size());
+    message.getMessageProperties().setHeader(RETRY_COUNT_HEADER, retryCount + 1);
+    return send(properties.getRetryQueueName(delay), message);
+  }
+
+  /**
+   * Sends the message to the dead letter queue, with the cause in its headers.
+   *
+   * @return a future that completes when the broker has confirmed the message, like
+   * {@link #retry(Message, Throwable)}
+   */
+  public CompletableFuture<Void> deadLetter(Message message, Throwable cause) {
+    message.getMessageProperties().setHeader(X_EXCEPTION_MESSAGE, String.valueOf(cause));
+    return send(properties.getDeadLetterQueueName(), message);
+  }
+
+  private CompletableFuture<Void> send(String queue, Message message) {
+    if (!confirms) {
+      rabbitTemplate.send(DEFAULT_EXCHANGE, queue, message);
+      return CompletableFuture.completedFuture(null);
+    }
+    var correlation = new CorrelationData();
+    rabbitTemplate.send(DEFAULT_EXCHANGE, queue, message, correlation);
+    var timeout = properties.getPublisherConfirmTimeout();
+    return correlation.getFuture().orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+        .handle((confirm, throwable) -> {
+          if (throwable instanceof TimeoutException) {
+            throw failed(queue, "not confirmed within " + timeout);
+          } else if (throwable != null) {
+            throw failed(queue, "not confirmed: " + throwable.getMessage());
+          } else if (!confirm.ack()) {
+            throw failed(queue, "nacked by the broker: " + confirm.reason());
+          } else if (correlation.getReturned() != null) {
+            throw failed(queue, "returned by the broker: "
+                + correlation.getReturned().getReplyText());
+          }
+          return null;
+        });
+  }
+
+  // Unchecked, so it can be thrown from the stage; the future fails with it as the cause
+  private static CompletionException failed(String queue, String reason) {
+    return new CompletionException(
+        new PublishFailedException("Message for queue " + queue + " was " + reason));
+  }
+
+  private static int getRetryCount(Message message) {
+    return message.getMessageProperties().getHeader(RETRY_COUNT_HEADER) instanceof Number count
+        ? count.intValue() : 0;
+  }
+
+  /**
+   * Moves messages from the dead letter queue back to the queue of the consumer, with a reset
+   * retry count. The messages are published like the retries, so they are mandatory and awaited
+   * with their confirms when the connection factory has those enabled. A message is only removed
+   * from the dead letter queue after its copy has been confirmed; a message that is nacked,
+   * returned or not confirmed in time is put back.
+   *
+   * @param limit the maximum number of messages that are moved, all of them are held
+   *              unacknowledged until their copies are confirmed
+   * @return the number of messages that were moved
+   */
+  public int replay(int limit) {
+    var replayed = rabbitTemplate.execute(channel -> {
+      // Through the default exchange a message is routable as long as the queue exists
+      channel.queueDeclarePassive(properties.getQueueName());
+      var pending = new LinkedHashMap<Long, CompletableFuture<Void>>();
+      while (pending.size() < limit) {
+        var response = channel.basicGet(properties.getDeadLetterQueueName(), false);
+        if (response == null) {
+          break;
+        }
+        var messageProperties = MESSAGE_PROPERTIES_CONVERTER.toMessageProperties(
+            response.getProps(), response.getEnvelope(), StandardCharsets.UTF_8.name());
+        messageProperties.getHeaders().remove(RETRY_COUNT_HEADER);
+        messageProperties.getHeaders().remove(X_EXCEPTION_MESSAGE);
+        pending.put(response.getEnvelope().getDeliveryTag(),
+            send(properties.getQueueName(), new Message(response.getBody(), messageProperties)));
+      }
+      var moved = 0;
+      for (var entry : pending.entrySet()) {
+        try {
+          entry.getValue().join();
+          channel.basicAck(entry.getKey(), false);
+          moved++;
+        } catch (CompletionException e) {
+          log.error("Failed to replay message, it stays in the dead letter queue", e.getCause());
+          channel.basicNack(entry.getKey(), false, true);
+        }
+      }
+      return moved;
+    });
+    log.info("Replayed {} messages from the dead letter queue", replayed);
+    return replayed == null ? 0 : replayed;
+  }
+
+}
@@ -0,0 +1,110 @@
+package eu.dissco.core.digitalmediaderivativeservice.codec;
+
+import static eu.dissco.core.digitalmediaderivativeservice.codec.ZstdCodec.DICTIONARY_HEADER;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+
+class ZstdCodecTest {
+
+  private MessageCompressionProperties properties;
+
+  @BeforeEach
+  void setUp() {
+    properties = new MessageCompressionProperties();
+  }
+
+  private ZstdCodec givenZstdCodec(boolean dictionary) throws IOException {
+    properties.setZstdDictionary(dictionary);
+    return new ZstdCodec(properties, new PipelineProperties(), new RabbitMqProperties(), MAPPER);
+  }
+
+  private static byte[] givenMessage() {
+    return MAPPER.writeValueAsString(givenDigitalMediaEvent()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testRoundTrip() throws IOException {
+    // Given
+    var zstdCodec = givenZstdCodec(false);
+    var messageProperties = new MessageProperties();
+
+    // When
+    var compressed = zstdCodec.compress(givenMessage(), messageProperties);
+
+    // Then
+    assertThat(messageProperties.getHeaders()).doesNotContainKey(DICTIONARY_HEADER);
+    assertThat(zstdCodec.decompress(compressed, messageProperties))
+        .isEqualTo(givenMessage());
+  }
+
+  @Test
+  void testRoundTripDictionary() throws IOException {
+    // Given
+    var zstdCodec = givenZstdCodec(true);
+    var messageProperties = new MessageProperties();
+    var withoutDictionary = givenZstdCodec(false).compress(givenMessage(),
+        new MessageProperties());
+
+    // When
+    var compressed = zstdCodec.compress(givenMessage(), messageProperties);
+
+    // Then
+    assertThat(messageProperties.<String>getHeader(DICTIONARY_HEADER)).isNotBlank();
+    assertThat(compressed).hasSizeLessThan(withoutDictionary.length);
+    assertThat(givenZstdCodec(false).decompress(compressed, messageProperties))
+        .isEqualTo(givenMessage());
+  }
+
+  @Test
+  void testDecompressStream() throws IOException {
+    // Given
+    var bytes = new ByteArrayOutputStream();
+    try (var zstd = new ZstdOutputStream(bytes)) {
+      zstd.write(givenMessage());
+    }
+
+    // When
+    var result = givenZstdCodec(false).decompress(bytes.toByteArray(), new MessageProperties());
+
+    // Then
+    assertThat(result).isEqualTo(givenMessage());
+  }
+
+  @Test
+  void testUnknownDictionary() throws IOException {
+    // Given
+    var zstdCodec = givenZstdCodec(true);
+    var messageProperties = new MessageProperties();
+    var compressed = zstdCodec.compress(givenMessage(), messageProperties);
+    messageProperties.setHeader(DICTIONARY_HEADER, "0");
+
+    // When / Then
+    assertThrows(IOException.class, () -> zstdCodec.decompress(compressed, messageProperties));
+  }
+
+  @Test
+  void testCorruptMessage() throws IOException {
+    // Given
+    var zstdCodec = givenZstdCodec(false);
+    var compressed = zstdCodec.compress(givenMessage(), new MessageProperties());
+    compressed[compressed.length / 2] ^= 0x5a;
+
+    // When / Then
+    assertThrows(IOException.class,
+        () -> zstdCodec.decompress(compressed, new MessageProperties()));
+  }
+
+}
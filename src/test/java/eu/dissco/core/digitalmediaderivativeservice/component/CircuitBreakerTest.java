@@ -0,0 +1,89 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.component.CircuitBreaker.State;
+import eu.dissco.core.digitalmediaderivativeservice.property.CircuitBreakerProperties;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final long OPEN_DURATION = Duration.ofMinutes(1).toNanos();
+
+  private CircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  void setUp() {
+    var properties = new CircuitBreakerProperties();
+    properties.setFailureThreshold(2);
+    properties.setOpenDuration(Duration.ofNanos(OPEN_DURATION));
+    properties.setHalfOpenRequests(1);
+    circuitBreaker = new CircuitBreaker(properties);
+  }
+
+  @Test
+  void testOpensAfterConsecutiveFailures() {
+    // Given
+    circuitBreaker.onFailure(0);
+    circuitBreaker.onSuccess();
+    circuitBreaker.onFailure(0);
+
+    // When
+    circuitBreaker.onFailure(0);
+
+    // Then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.isOpen(OPEN_DURATION - 1)).isTrue();
+    assertThat(circuitBreaker.tryAcquire(OPEN_DURATION - 1)).isFalse();
+  }
+
+  @Test
+  void testHalfOpenLimitsTrials() {
+    // Given
+    givenOpenCircuit();
+
+    // When
+    var trial = circuitBreaker.tryAcquire(OPEN_DURATION);
+
+    // Then
+    assertThat(trial).isTrue();
+    assertThat(circuitBreaker.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(circuitBreaker.tryAcquire(OPEN_DURATION)).isFalse();
+  }
+
+  @Test
+  void testHalfOpenClosesOnSuccess() {
+    // Given
+    givenOpenCircuit();
+    circuitBreaker.tryAcquire(OPEN_DURATION);
+
+    // When
+    circuitBreaker.onSuccess();
+
+    // Then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.CLOSED);
+    assertThat(circuitBreaker.tryAcquire(OPEN_DURATION)).isTrue();
+  }
+
+  @Test
+  void testHalfOpenReopensOnFailure() {
+    // Given
+    givenOpenCircuit();
+    circuitBreaker.tryAcquire(OPEN_DURATION);
+
+    // When
+    circuitBreaker.onFailure(OPEN_DURATION);
+
+    // Then
+    assertThat(circuitBreaker.getState()).isEqualTo(State.OPEN);
+    assertThat(circuitBreaker.tryAcquire(2 * OPEN_DURATION - 1)).isFalse();
+  }
+
+  private void givenOpenCircuit() {
+    circuitBreaker.onFailure(0);
+    circuitBreaker.onFailure(0);
+  }
+
+}
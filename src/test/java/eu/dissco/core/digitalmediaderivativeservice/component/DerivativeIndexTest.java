@@ -0,0 +1,139 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.lenient;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeIndexProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import eu.dissco.core.digitalmediaderivativeservice.repository.S3Repository;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DerivativeIndexTest {
+
+  private static final String DOI = "https://doi.org/" + PREFIX + "/XXX-XXX-XXX";
+  private static final String OTHER_DOI = "https://doi.org/" + PREFIX + "/YYY-YYY-YYY";
+
+  @Mock
+  private S3Repository s3Repository;
+
+  private DerivativeIndexProperties properties;
+
+  @BeforeEach
+  void setUp() {
+    properties = new DerivativeIndexProperties();
+    properties.setEnabled(true);
+    lenient().when(s3Repository.getKey(anyString(), any(DerivativeProfile.class))).thenAnswer(
+        invocation -> invocation.<String>getArgument(0) + '-'
+            + invocation.<DerivativeProfile>getArgument(1).getSuffix());
+  }
+
+  private DerivativeIndex givenWarmIndex(String... keys) {
+    given(s3Repository.listKeys(any())).willAnswer(invocation -> {
+      Consumer<String> consumer = invocation.getArgument(0);
+      for (var key : keys) {
+        consumer.accept(key);
+      }
+      return CompletableFuture.completedFuture(null);
+    });
+    var derivativeIndex = new DerivativeIndex(properties, new ApplicationProperties(),
+        s3Repository);
+    derivativeIndex.warmUp();
+    return derivativeIndex;
+  }
+
+  @Test
+  void testMightHaveDerivatives() {
+    // Given
+    var derivativeIndex = givenWarmIndex(DOI + "-derivative", DOI + "-thumbnail",
+        OTHER_DOI + "-derivative");
+
+    // When / Then
+    assertThat(derivativeIndex.mightHaveDerivatives(DOI)).isTrue();
+    assertThat(derivativeIndex.mightHaveDerivatives(OTHER_DOI)).isFalse();
+  }
+
+  @Test
+  void testAddDerivatives() {
+    // Given
+    var derivativeIndex = givenWarmIndex();
+
+    // When
+    derivativeIndex.addDerivatives(DOI);
+
+    // Then
+    assertThat(derivativeIndex.mightHaveDerivatives(DOI)).isTrue();
+    assertThat(derivativeIndex.mightHaveDerivatives(OTHER_DOI)).isFalse();
+  }
+
+  @Test
+  void testNotWarm() {
+    // Given
+    given(s3Repository.listKeys(any())).willReturn(
+        CompletableFuture.failedFuture(new IllegalStateException("Access denied")));
+    var derivativeIndex = new DerivativeIndex(properties, new ApplicationProperties(),
+        s3Repository);
+
+    // When
+    derivativeIndex.warmUp();
+
+    // Then
+    assertThat(derivativeIndex.mightHaveDerivatives(DOI)).isTrue();
+  }
+
+  @Test
+  void testForce() {
+    // Given
+    properties.setForce(true);
+    var derivativeIndex = givenWarmIndex(DOI + "-derivative", DOI + "-thumbnail");
+
+    // When / Then
+    assertThat(derivativeIndex.mightHaveDerivatives(DOI)).isFalse();
+  }
+
+  @Test
+  void testDisabled() {
+    // Given
+    properties.setEnabled(false);
+    var derivativeIndex = new DerivativeIndex(properties, new ApplicationProperties(),
+        s3Repository);
+
+    // When
+    derivativeIndex.warmUp();
+    derivativeIndex.addDerivatives(DOI);
+
+    // Then
+    assertThat(derivativeIndex.mightHaveDerivatives(DOI)).isFalse();
+    then(s3Repository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testFalsePositiveRate() {
+    // Given
+    var filter = new BloomFilter(10_000, 0.01);
+    IntStream.range(0, 10_000).forEach(i -> filter.put("present-" + i));
+
+    // When
+    var falsePositives = IntStream.range(0, 10_000)
+        .filter(i -> filter.mightContain("absent-" + i)).count();
+
+    // Then
+    assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("present-" + i)))
+        .isTrue();
+    assertThat(falsePositives).isLessThan(200);
+  }
+
+}
@@ -0,0 +1,96 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EncodeBufferPoolTest {
+
+  private BufferPoolProperties bufferPoolProperties;
+  private SimpleMeterRegistry meterRegistry;
+  private EncodeBufferPool encodeBufferPool;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    bufferPoolProperties = new BufferPoolProperties();
+    encodeBufferPool = new EncodeBufferPool(new ApplicationProperties(), new PipelineProperties(),
+        bufferPoolProperties, meterRegistry);
+  }
+
+  @Test
+  void testAcquireReusesReleasedBuffer() {
+    // Given
+    var buffer = encodeBufferPool.acquire(16);
+    buffer.write(new byte[]{1, 2, 3}, 0, 3);
+    encodeBufferPool.release(buffer);
+
+    // When
+    var result = encodeBufferPool.acquire(64);
+
+    // Then
+    assertThat(result).isSameAs(buffer);
+    assertThat(result.size()).isZero();
+    assertThat(result.capacity()).isGreaterThanOrEqualTo(64);
+    assertThat(meterRegistry.get(RasterPool.POOL_REQUESTS).tags("pool", "encode", "result", "hit")
+        .counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void testTrimReleasesIdleBuffers() {
+    // Given
+    bufferPoolProperties.setIdleTimeout(Duration.ZERO);
+    encodeBufferPool = new EncodeBufferPool(new ApplicationProperties(), new PipelineProperties(),
+        bufferPoolProperties, meterRegistry);
+    encodeBufferPool.release(encodeBufferPool.acquire(16));
+
+    // When
+    encodeBufferPool.trim();
+
+    // Then
+    assertThat(encodeBufferPool.getRetainedBytes()).isZero();
+  }
+
+  @Test
+  void testWriteGrowsBuffer() {
+    // Given
+    var bytes = "a derivative which does not fit".getBytes(StandardCharsets.UTF_8);
+    var buffer = encodeBufferPool.acquire(4);
+
+    // When
+    buffer.write(bytes, 0, bytes.length);
+
+    // Then
+    assertThat(buffer.size()).isEqualTo(bytes.length);
+    assertThat(buffer.toByteBuffer()).isEqualTo(ByteBuffer.wrap(bytes));
+  }
+
+  @Test
+  void testGetChecksum() {
+    // Given
+    var bytes = "derivative".getBytes(StandardCharsets.UTF_8);
+    var crc32c = new CRC32C();
+    crc32c.update(bytes);
+    var expected = Base64.getEncoder().encodeToString(
+        ByteBuffer.allocate(Integer.BYTES).putInt((int) crc32c.getValue()).array());
+    var buffer = encodeBufferPool.acquire(4);
+
+    // When
+    buffer.write(bytes, 0, 5);
+    buffer.write(bytes, 5, bytes.length - 5);
+
+    // Then
+    assertThat(buffer.getChecksum()).isEqualTo(expected);
+  }
+
+}
@@ -0,0 +1,81 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.HeapBudgetProperties;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class HeapBudgetComponentTest {
+
+  private HeapBudgetComponent heapBudget;
+
+  @BeforeEach
+  void setUp() {
+    var properties = new HeapBudgetProperties();
+    properties.setSize(DataSize.ofMegabytes(100));
+    properties.setWorkingMemoryFactor(2.0);
+    properties.setMaxPixels(100_000_000L);
+    properties.setAcquireTimeout(Duration.ofMillis(100));
+    heapBudget = new HeapBudgetComponent(properties);
+  }
+
+  @Test
+  void testCheckPixels() {
+    // Given
+
+    // When / Then
+    assertDoesNotThrow(() -> heapBudget.checkPixels(10000, 10000));
+  }
+
+  @Test
+  void testCheckPixelsDecompressionBomb() {
+    // Given
+
+    // When / Then
+    assertThrows(ImageRejectedException.class, () -> heapBudget.checkPixels(30000, 20000));
+  }
+
+  @Test
+  void testReserve() throws ProcessingFailedException {
+    // Given
+
+    // When
+    try (var reservation = heapBudget.reserve(DataSize.ofMegabytes(10).toBytes())) {
+
+      // Then
+      assertThat(heapBudget.getAvailableKilobytes()).isEqualTo(80 * 1024);
+    }
+    assertThat(heapBudget.getAvailableKilobytes()).isEqualTo(100 * 1024);
+  }
+
+  @Test
+  void testReserveExhausted() throws ProcessingFailedException {
+    // Given
+    try (var reservation = heapBudget.reserve(DataSize.ofMegabytes(40).toBytes())) {
+
+      // When / Then
+      assertThrows(ProcessingFailedException.class,
+          () -> heapBudget.reserve(DataSize.ofMegabytes(20).toBytes()));
+    }
+  }
+
+  @Test
+  void testReserveLargerThanBudget() throws ProcessingFailedException {
+    // Given
+
+    // When
+    try (var reservation = heapBudget.reserve(DataSize.ofGigabytes(1).toBytes())) {
+
+      // Then
+      assertThat(heapBudget.getAvailableKilobytes()).isZero();
+    }
+  }
+
+}
@@ -0,0 +1,209 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.component.HostScheduler.CIRCUIT_REJECTED;
+import static eu.dissco.core.digitalmediaderivativeservice.component.HostScheduler.FETCH_DEFERRED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostThrottledException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostUnavailableException;
+import eu.dissco.core.digitalmediaderivativeservice.property.CircuitBreakerProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.HostLimits;
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HostSchedulerTest {
+
+  private static final URI SLOW_HOST = URI.create("https://slow.example.org/image.jpg");
+  private static final URI OTHER_HOST = URI.create("https://other.example.org/image.jpg");
+
+  private ImageFetchProperties properties;
+  private CircuitBreakerProperties circuitBreakerProperties;
+  private SimpleMeterRegistry meterRegistry;
+  private HostScheduler hostScheduler;
+
+  @BeforeEach
+  void setUp() {
+    properties = new ImageFetchProperties();
+    properties.setHostLimits(HostLimits.builder().maxConcurrentRequests(1)
+        .requestsPerSecond(1000).build());
+    meterRegistry = new SimpleMeterRegistry();
+    circuitBreakerProperties = new CircuitBreakerProperties();
+    hostScheduler = new HostScheduler(properties, circuitBreakerProperties, meterRegistry);
+  }
+
+  @AfterEach
+  void destroy() {
+    hostScheduler.shutdown();
+  }
+
+  @Test
+  void testScheduleDefersWhileHostIsBusy() {
+    // Given
+    var first = new CompletableFuture<String>();
+    var firstResult = hostScheduler.schedule(SLOW_HOST, () -> first);
+
+    // When
+    var secondResult = hostScheduler.schedule(SLOW_HOST,
+        () -> CompletableFuture.completedFuture("second"));
+
+    // Then
+    assertThat(secondResult).isNotDone();
+    assertThat(meterRegistry.get(FETCH_DEFERRED).gauge().value()).isEqualTo(1.0);
+    first.complete("first");
+    assertThat(firstResult).isCompletedWithValue("first");
+    assertThat(secondResult).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("second");
+  }
+
+  @Test
+  void testScheduleOtherHostIsNotHeldUp() {
+    // Given
+    hostScheduler.schedule(SLOW_HOST, CompletableFuture::new);
+    hostScheduler.schedule(SLOW_HOST, CompletableFuture::new);
+
+    // When
+    var result = hostScheduler.schedule(OTHER_HOST,
+        () -> CompletableFuture.completedFuture("other"));
+
+    // Then
+    assertThat(result).isCompletedWithValue("other");
+  }
+
+  @Test
+  void testScheduleHostLimits() {
+    // Given
+    properties.getHosts().put("slow.example.org", HostLimits.builder().maxConcurrentRequests(10)
+        .requestsPerSecond(20).build());
+    var starts = new ArrayList<Long>();
+
+    // When
+    var results = List.of(
+        hostScheduler.schedule(SLOW_HOST, () -> start(starts)),
+        hostScheduler.schedule(SLOW_HOST, () -> start(starts)),
+        hostScheduler.schedule(SLOW_HOST, () -> start(starts)));
+
+    // Then
+    CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    assertThat(Duration.ofNanos(starts.get(2) - starts.get(0)))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(90));
+  }
+
+  @Test
+  void testSchedulePausesThrottledHost() {
+    // Given
+    var throttledAt = System.nanoTime();
+    hostScheduler.schedule(SLOW_HOST, () -> CompletableFuture.failedFuture(
+        new HostThrottledException("Too many requests", Duration.ofMillis(200))));
+    var starts = new ArrayList<Long>();
+
+    // When
+    var result = hostScheduler.schedule(SLOW_HOST, () -> start(starts));
+
+    // Then
+    assertThat(result).succeedsWithin(Duration.ofSeconds(5));
+    assertThat(Duration.ofNanos(starts.getFirst() - throttledAt))
+        .isGreaterThanOrEqualTo(Duration.ofMillis(200));
+  }
+
+  @Test
+  void testScheduleFailsFastWhileCircuitIsOpen() {
+    // Given
+    circuitBreakerProperties.setFailureThreshold(2);
+    for (int i = 0; i < 2; i++) {
+      // The second fetch can wait for a permit, the circuit opens once it has failed
+      assertThat(hostScheduler.schedule(SLOW_HOST, () -> CompletableFuture.failedFuture(
+          new HostUnavailableException("Connection refused")))).failsWithin(Duration.ofSeconds(5));
+    }
+    var starts = new ArrayList<Long>();
+
+    // When
+    var result = hostScheduler.schedule(SLOW_HOST, () -> start(starts));
+
+    // Then
+    assertThat(result).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(HostUnavailableException.class);
+    assertThat(starts).isEmpty();
+    assertThat(meterRegistry.get(CIRCUIT_REJECTED).counter().count()).isEqualTo(1.0);
+    assertThat(hostScheduler.schedule(OTHER_HOST,
+        () -> CompletableFuture.completedFuture("other"))).isCompletedWithValue("other");
+  }
+
+  @Test
+  void testScheduleTakesTrialWhenFetchStarts() {
+    // Given
+    circuitBreakerProperties.setFailureThreshold(1);
+    circuitBreakerProperties.setOpenDuration(Duration.ZERO);
+    assertThat(hostScheduler.schedule(SLOW_HOST, () -> CompletableFuture.failedFuture(
+        new HostUnavailableException("Connection refused")))).failsWithin(Duration.ofSeconds(5));
+    var trial = new CompletableFuture<String>();
+    var trialResult = hostScheduler.schedule(SLOW_HOST, () -> trial);
+
+    // When
+    var queuedResult = hostScheduler.schedule(SLOW_HOST,
+        () -> CompletableFuture.completedFuture("queued"));
+
+    // Then
+    assertThat(queuedResult).isNotDone();
+    trial.complete("trial");
+    assertThat(trialResult).isCompletedWithValue("trial");
+    assertThat(queuedResult).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("queued");
+    assertThat(meterRegistry.get(CIRCUIT_REJECTED).counter().count()).isZero();
+  }
+
+  @Test
+  void testScheduleDoesNotBlockFullFetchStage() throws InterruptedException {
+    // Given
+    var fetchStage = new PipelineStage("fetch", 1, 0, Thread.ofPlatform().daemon().factory(),
+        meterRegistry);
+    var results = new ConcurrentLinkedQueue<CompletableFuture<String>>();
+    var consumers = new ArrayList<Thread>();
+
+    // When
+    for (int host = 0; host < 4; host++) {
+      var uri = URI.create("https://host-" + host + ".example.org/image.jpg");
+      consumers.add(Thread.startVirtualThread(() -> {
+        for (int i = 0; i < 3; i++) {
+          results.add(hostScheduler.schedule(uri, () -> fetch(fetchStage, uri)));
+        }
+      }));
+    }
+    for (var consumer : consumers) {
+      consumer.join(Duration.ofSeconds(10));
+    }
+
+    // Then
+    assertThat(consumers).noneMatch(Thread::isAlive);
+    assertThat(CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)))
+        .succeedsWithin(Duration.ofSeconds(10));
+    assertThat(results).hasSize(12);
+    fetchStage.shutdown();
+  }
+
+  // The fetch completes on the worker while its task still holds the only slot of the stage
+  private static CompletableFuture<String> fetch(PipelineStage fetchStage, URI uri) {
+    var fetched = new CompletableFuture<String>();
+    fetchStage.submit(() -> {
+      LockSupport.parkNanos(Duration.ofMillis(1).toNanos());
+      return fetched.complete(uri.getHost());
+    });
+    return fetched;
+  }
+
+  private static synchronized CompletableFuture<Long> start(List<Long> starts) {
+    var now = System.nanoTime();
+    starts.add(now);
+    return CompletableFuture.completedFuture(now);
+  }
+
+}
@@ -0,0 +1,167 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.core.io.ClassPathResource;
+
+class ImageDecoderComponentTest {
+
+  private ImageDecoderComponent imageDecoder;
+
+  static Stream<Arguments> subsamplingProvider() {
+    return Stream.of(
+        Arguments.of(1920, 1795, 2048f, 1),
+        Arguments.of(3000, 3000, 2048f, 1),
+        Arguments.of(8000, 12000, 2048f, 2),
+        Arguments.of(30000, 20000, 2048f, 7),
+        Arguments.of(3000, 3000, 400f, 3)
+    );
+  }
+
+  @BeforeEach
+  void setUp() {
+    imageDecoder = new ImageDecoderComponent(new ApplicationProperties());
+  }
+
+  @MethodSource("subsamplingProvider")
+  @ParameterizedTest
+  void testGetSubsamplingFactor(int width, int height, float maxOutputSize, int expected) {
+    // Given
+
+    // When
+    var result = imageDecoder.getSubsamplingFactor(width, height, maxOutputSize);
+
+    // Then
+    assertThat(result).isEqualTo(expected);
+  }
+
+  @Test
+  void testReadHeader() throws IOException {
+    // Given
+    var file = givenFile("test-image-1.jpeg");
+
+    // When
+    var result = imageDecoder.readHeader(file.toPath());
+
+    // Then
+    assertThat(result).isEqualTo(new ImageHeader("image/jpeg", 1920, 1795, 3, "YCbCr"));
+  }
+
+  @Test
+  void testEstimateRasterBytes() {
+    // Given
+    var header = new ImageHeader("image/jpeg", 30000, 20000, 3, "YCbCr");
+
+    // When
+    var result = imageDecoder.estimateRasterBytes(header, 2048f);
+
+    // Then
+    assertThat(result).isEqualTo(4286L * 2858L * 3L);
+  }
+
+  @Test
+  void testDecodeStrips() throws IOException {
+    // Given
+    var file = givenFile("test-image-4.jpeg");
+    var strips = new ArrayList<BufferedImage>();
+
+    // When
+    var result = imageDecoder.decodeStrips(file.toPath(), 400f, 1000L * 4 * 300, strips::add);
+
+    // Then
+    assertThat(result).isTrue();
+    assertThat(strips).hasSize(4);
+    assertThat(strips).allSatisfy(strip -> assertThat(strip.getWidth()).isEqualTo(1000));
+    assertThat(strips.stream().mapToInt(BufferedImage::getHeight).sum()).isEqualTo(1000);
+  }
+
+  @Test
+  void testDecodeStripsUnsupportedFormat() throws IOException {
+    // Given
+    var file = givenFile("test-iiif.json");
+
+    // When
+    var result = imageDecoder.decodeStrips(file.toPath(), 2048f, 1024L, strip -> {
+    });
+
+    // Then
+    assertThat(result).isFalse();
+  }
+
+  @Test
+  void testReadHeaderUnsupportedFormat() throws IOException {
+    // Given
+    var file = givenFile("test-iiif.json");
+
+    // When
+    var result = imageDecoder.readHeader(file.toPath());
+
+    // Then
+    assertThat(result).isNull();
+  }
+
+  @Test
+  void testDecodeSubsampled() throws IOException {
+    // Given
+    var file = givenFile("test-image-4.jpeg");
+
+    // When
+    try (var input = ImageIO.createImageInputStream(file)) {
+      var result = imageDecoder.decode(input, 400f);
+
+      // Then
+      assertThat(result.originalWidth()).isEqualTo(3000);
+      assertThat(result.originalHeight()).isEqualTo(3000);
+      assertThat(result.image().getWidth()).isEqualTo(1000);
+      assertThat(result.image().getHeight()).isEqualTo(1000);
+    }
+  }
+
+  @Test
+  void testDecodeFullResolution() throws IOException {
+    // Given
+    var file = givenFile("test-image-1.jpeg");
+
+    // When
+    try (var input = ImageIO.createImageInputStream(file)) {
+      var result = imageDecoder.decode(input, 2048f);
+
+      // Then
+      assertThat(result.image().getWidth()).isEqualTo(result.originalWidth());
+      assertThat(result.image().getHeight()).isEqualTo(result.originalHeight());
+    }
+  }
+
+  @Test
+  void testDecodeUnsupportedFormat() throws IOException {
+    // Given
+    var file = givenFile("test-iiif.json");
+
+    // When
+    try (var input = ImageIO.createImageInputStream(file)) {
+      var result = imageDecoder.decode(input, 2048f);
+
+      // Then
+      assertThat(result).isNull();
+    }
+  }
+
+  private static File givenFile(String fileName) {
+    return new File(
+        new ClassPathResource("src/test/resources/test-images/" + fileName).getPath());
+  }
+
+}
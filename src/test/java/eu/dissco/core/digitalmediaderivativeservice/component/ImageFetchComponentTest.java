@@ -0,0 +1,176 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpServer;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostThrottledException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.HostUnavailableException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageNotFoundException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.unit.DataSize;
+
+class ImageFetchComponentTest {
+
+  private static final Path IMAGE = Path.of(
+      new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath());
+  private static HttpServer server;
+
+  private ImageFetchProperties properties;
+  private ImageFetchComponent imageFetcher;
+
+  @BeforeAll
+  static void setupServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/image", exchange -> {
+      var bytes = Files.readAllBytes(IMAGE);
+      exchange.getResponseHeaders().add("Content-Type", "image/jpeg");
+      exchange.sendResponseHeaders(200, bytes.length);
+      try (var body = exchange.getResponseBody()) {
+        body.write(bytes);
+      }
+    });
+    server.createContext("/chunked", exchange -> {
+      var bytes = Files.readAllBytes(IMAGE);
+      exchange.sendResponseHeaders(200, 0);
+      try (var body = exchange.getResponseBody()) {
+        body.write(bytes);
+      } catch (IOException e) {
+        // Client closed the connection
+      }
+    });
+    server.createContext("/missing", exchange -> {
+      exchange.sendResponseHeaders(404, -1);
+      exchange.close();
+    });
+    server.createContext("/throttled", exchange -> {
+      exchange.getResponseHeaders().add("Retry-After", "120");
+      exchange.sendResponseHeaders(429, -1);
+      exchange.close();
+    });
+    server.createContext("/stalled", exchange -> {
+      exchange.sendResponseHeaders(200, 0);
+      try (var body = exchange.getResponseBody()) {
+        body.write(new byte[1024]);
+        body.flush();
+        Thread.sleep(3000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (IOException e) {
+        // Client closed the connection
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @AfterAll
+  static void shutdownServer() {
+    server.stop(0);
+  }
+
+  @BeforeEach
+  void setUp() {
+    properties = new ImageFetchProperties();
+    properties.setReadTimeout(Duration.ofMillis(500));
+    imageFetcher = new ImageFetchComponent(HttpClient.newHttpClient(), properties);
+  }
+
+  @AfterEach
+  void destroy() {
+    imageFetcher.shutdown();
+  }
+
+  @Test
+  void testFetch() throws Exception {
+    // Given
+
+    // When
+    try (var result = imageFetcher.fetch(givenUri("/image"))) {
+
+      // Then
+      assertThat(result.contentType()).isEqualTo("image/jpeg");
+      assertThat(result.size()).isEqualTo(Files.size(IMAGE));
+      assertThat(Files.mismatch(result.file(), IMAGE)).isEqualTo(-1L);
+    }
+  }
+
+  @Test
+  void testFetchRemovesSpoolFile() throws Exception {
+    // Given
+    var result = imageFetcher.fetch(givenUri("/image"));
+
+    // When
+    result.close();
+
+    // Then
+    assertThat(result.file()).doesNotExist();
+  }
+
+  @Test
+  void testFetchNotFound() {
+    // Given
+
+    // When / Then
+    assertThrows(ImageNotFoundException.class, () -> imageFetcher.fetch(givenUri("/missing")));
+  }
+
+  @Test
+  void testFetchThrottled() {
+    // Given
+
+    // When
+    var exception = assertThrows(HostThrottledException.class,
+        () -> imageFetcher.fetch(givenUri("/throttled")));
+
+    // Then
+    assertThat(exception.getRetryAfter()).isEqualTo(Duration.ofMinutes(2));
+  }
+
+  @Test
+  void testFetchExceedsMaxSize() {
+    // Given
+    properties.setMaxSize(DataSize.ofKilobytes(1));
+
+    // When / Then
+    assertThrows(ImageRejectedException.class, () -> imageFetcher.fetch(givenUri("/image")));
+  }
+
+  @Test
+  void testFetchStreamExceedsMaxSize() {
+    // Given
+    properties.setMaxSize(DataSize.ofKilobytes(1));
+
+    // When / Then
+    assertThrows(ImageRejectedException.class, () -> imageFetcher.fetch(givenUri("/chunked")));
+  }
+
+  @Test
+  void testFetchReadTimeout() {
+    // Given
+
+    // When / Then
+    assertThrows(HostUnavailableException.class,
+        () -> imageFetcher.fetch(givenUri("/stalled")));
+  }
+
+  private static URI givenUri(String path) {
+    return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+  }
+
+}
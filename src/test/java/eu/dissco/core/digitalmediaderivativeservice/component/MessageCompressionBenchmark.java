@@ -0,0 +1,143 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaWithDerivativeEvent;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenProvenanceEventJson;
+
+import eu.dissco.core.digitalmediaderivativeservice.codec.GzipCodec;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodecRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.codec.ZstdCodec;
+import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * Compares the codecs of the {@link MessageCompressionComponent} with each other and with the stream
+ * based gzip implementation they replaced, on the events the service consumes (PROVENANCE) and
+ * publishes (DIGITAL_MEDIA). The stream benchmarks ignore the encoding, the event benchmarks compare
+ * publishing a Digital Media event object with publishing it serialized as String and ignore the
+ * payload. Run with
+ * {@code mvn test-compile exec:exec@message-compression-benchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageCompressionBenchmark {
+
+  @Param({"PROVENANCE", "DIGITAL_MEDIA"})
+  private Payload payload;
+
+  @Param({"GZIP", "ZSTD", "ZSTD_DICTIONARY"})
+  private Encoding encoding;
+
+  private MessageCompressionComponent messageCompressionComponent;
+  private String json;
+  private DigitalMediaEvent event;
+  private Message compressedMessage;
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MessageCompressionBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    var properties = new MessageCompressionProperties();
+    properties.setEncoding(encoding == Encoding.GZIP ? "gzip" : "zstd");
+    properties.setZstdDictionary(encoding == Encoding.ZSTD_DICTIONARY);
+    var pipelineProperties = new PipelineProperties();
+    var rabbitMqProperties = new RabbitMqProperties();
+    messageCompressionComponent = new MessageCompressionComponent(properties,
+        new MessageCodecRegistry(List.of(new GzipCodec(pipelineProperties, rabbitMqProperties),
+            new ZstdCodec(properties, pipelineProperties, rabbitMqProperties, MAPPER))),
+        pipelineProperties, MAPPER);
+    json = switch (payload) {
+      case PROVENANCE -> MAPPER.writeValueAsString(givenProvenanceEventJson());
+      case DIGITAL_MEDIA -> MAPPER.writeValueAsString(
+          givenDigitalMediaWithDerivativeEvent(3000, 3000, 2048, 2048, 400, 400));
+    };
+    compressedMessage = messageCompressionComponent.toMessage(json, new MessageProperties());
+    event = givenDigitalMediaWithDerivativeEvent(3000, 3000, 2048, 2048, 400, 400);
+  }
+
+  @Benchmark
+  public Message compress() {
+    return messageCompressionComponent.toMessage(json, new MessageProperties());
+  }
+
+  @Benchmark
+  public Object decompress() {
+    return messageCompressionComponent.fromMessage(compressedMessage);
+  }
+
+  @Benchmark
+  public Message compressEvent() {
+    return messageCompressionComponent.toMessage(event, new MessageProperties());
+  }
+
+  @Benchmark
+  public Message compressSerializedEvent() {
+    return messageCompressionComponent.toMessage(MAPPER.writeValueAsString(event),
+        new MessageProperties());
+  }
+
+  @Benchmark
+  public byte[] compressStream() throws IOException {
+    var bytes = new ByteArrayOutputStream(8192);
+    try (var gzip = new GZIPOutputStream(bytes, 8192)) {
+      gzip.write(json.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  @Benchmark
+  public String decompressStream() throws IOException {
+    try (var reader = new BufferedReader(new InputStreamReader(
+        new GZIPInputStream(new ByteArrayInputStream(compressedMessage.getBody()))))) {
+      return reader.lines().collect(Collectors.joining(System.lineSeparator()));
+    }
+  }
+
+  public enum Payload {
+    PROVENANCE,
+    DIGITAL_MEDIA
+  }
+
+  public enum Encoding {
+    GZIP,
+    ZSTD,
+    ZSTD_DICTIONARY
+  }
+
+}
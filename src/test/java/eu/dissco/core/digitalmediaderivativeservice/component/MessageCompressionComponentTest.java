@@ -1,22 +1,47 @@
 package eu.dissco.core.digitalmediaderivativeservice.component;
 
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaEvent;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import eu.dissco.core.digitalmediaderivativeservice.codec.GzipCodec;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodecRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.codec.ZstdCodec;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.util.unit.DataSize;
 
 class MessageCompressionComponentTest {
 
+  private MessageCompressionProperties properties;
   private MessageCompressionComponent messageCompressionComponent;
 
   @BeforeEach
-  void setUp() {
-    messageCompressionComponent = new MessageCompressionComponent();
+  void setUp() throws IOException {
+    properties = new MessageCompressionProperties();
+    messageCompressionComponent = givenMessageCompressionComponent();
+  }
+
+  private MessageCompressionComponent givenMessageCompressionComponent() throws IOException {
+    var pipelineProperties = new PipelineProperties();
+    var rabbitMqProperties = new RabbitMqProperties();
+    return new MessageCompressionComponent(properties, new MessageCodecRegistry(List.of(
+        new GzipCodec(pipelineProperties, rabbitMqProperties),
+        new ZstdCodec(properties, pipelineProperties, rabbitMqProperties, MAPPER))),
+        pipelineProperties, MAPPER);
   }
 
   @Test
@@ -36,6 +61,127 @@ class MessageCompressionComponentTest {
     assertThat(decompressedMessage).isEqualTo(messageString);
   }
 
+  @Test
+  void testCompressMessageZstd() throws IOException {
+    // Given
+    properties.setEncoding("zstd");
+    var publisher = givenMessageCompressionComponent();
+
+    // When
+    var compressedMessage = publisher.toMessage(givenMessage(), new MessageProperties());
+
+    // Then
+    assertThat(compressedMessage.getMessageProperties().getContentEncoding()).isEqualTo("zstd");
+    assertThat(messageCompressionComponent.fromMessage(compressedMessage))
+        .isEqualTo(givenMessage());
+  }
+
+  @Test
+  void testCompressEvent() {
+    // Given
+    var event = givenDigitalMediaEvent();
+
+    // When
+    var compressedMessage = messageCompressionComponent.toMessage(event, new MessageProperties());
+    var secondMessage = messageCompressionComponent.toMessage(event, new MessageProperties());
+
+    // Then
+    assertThat(compressedMessage.getMessageProperties().getContentEncoding()).isEqualTo("gzip");
+    assertThat(messageCompressionComponent.fromMessage(compressedMessage))
+        .isEqualTo(MAPPER.writeValueAsString(event));
+    assertThat(secondMessage.getBody()).isEqualTo(compressedMessage.getBody());
+  }
+
+  @Test
+  void testSmallEventIsNotCompressed() throws IOException {
+    // Given
+    properties.setMinSize(DataSize.ofKilobytes(64));
+    messageCompressionComponent = givenMessageCompressionComponent();
+    var event = givenDigitalMediaEvent();
+
+    // When
+    var message = messageCompressionComponent.toMessage(event, new MessageProperties());
+
+    // Then
+    assertThat(message.getMessageProperties().getContentEncoding()).isNull();
+    assertThat(new String(message.getBody(), StandardCharsets.UTF_8))
+        .isEqualTo(MAPPER.writeValueAsString(event));
+  }
+
+  @Test
+  void testInvalidMessageType() {
+    // Given
+    var messageProperties = new MessageProperties();
+
+    // When / Then
+    assertThrows(MessageConversionException.class,
+        () -> messageCompressionComponent.toMessage(42, messageProperties));
+  }
+
+  @Test
+  void testUnknownEncoding() {
+    // Given
+    properties.setEncoding("br");
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class, this::givenMessageCompressionComponent);
+  }
+
+  @Test
+  void testSmallMessageIsNotCompressed() throws IOException {
+    // Given
+    properties.setMinSize(DataSize.ofKilobytes(64));
+    messageCompressionComponent = givenMessageCompressionComponent();
+
+    // When
+    var message = messageCompressionComponent.toMessage(givenMessage(), new MessageProperties());
+
+    // Then
+    assertThat(message.getMessageProperties().getContentEncoding()).isNull();
+    assertThat(message.getMessageProperties().getContentType()).isEqualTo("application/json");
+    assertThat(new String(message.getBody(), StandardCharsets.UTF_8)).isEqualTo(givenMessage());
+  }
+
+  @Test
+  void testDecompressStreamCompressedMessage() throws IOException {
+    // Given
+    var payload = givenMessage().replace("\n", "\r\n") + "\n";
+    var message = givenGzipMessage(gzip(payload));
+
+    // When
+    var result = messageCompressionComponent.fromMessage(message);
+
+    // Then
+    assertThat(result).isEqualTo(payload);
+  }
+
+  @Test
+  void testDecompressConcatenatedMembers() throws IOException {
+    // Given
+    var first = gzip("{\"first\": ");
+    var second = gzip("\"second\"}");
+    var body = Arrays.copyOf(first, first.length + second.length);
+    System.arraycopy(second, 0, body, first.length, second.length);
+
+    // When
+    var result = messageCompressionComponent.fromMessage(givenGzipMessage(body));
+
+    // Then
+    assertThat(result).isEqualTo("{\"first\": \"second\"}");
+  }
+
+  @Test
+  void testDecompressCorruptMessage() throws IOException {
+    // Given
+    var body = gzip(givenMessage());
+    body[body.length - 5] ^= 1;
+    var message = givenGzipMessage(body);
+
+    // When / Then
+    assertThrows(MessageConversionException.class,
+        () -> messageCompressionComponent.fromMessage(message));
+  }
+
   @Test
   void testInvalidMessage() {
     // Given
@@ -61,6 +207,21 @@ class MessageCompressionComponentTest {
     assertThat(result).isEqualTo(givenMessage());
   }
 
+  private static byte[] gzip(String payload) throws IOException {
+    var bytes = new ByteArrayOutputStream();
+    try (var gzip = new GZIPOutputStream(bytes)) {
+      gzip.write(payload.getBytes(StandardCharsets.UTF_8));
+    }
+    return bytes.toByteArray();
+  }
+
+  private static Message givenGzipMessage(byte[] body) {
+    var messageProperties = new MessageProperties();
+    messageProperties.setContentType("application/json");
+    messageProperties.setContentEncoding("gzip");
+    return new Message(body, messageProperties);
+  }
+
   private String givenMessage() {
     return """
         {
@@ -0,0 +1,69 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.component.NegativeCache.NEGATIVE_CACHE_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.NegativeCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NegativeCacheTest {
+
+  private static final String ACCESS_URI = "https://example.org/image-1.jpg";
+  private static final String OTHER_ACCESS_URI = "https://example.org/image-2.jpg";
+
+  private NegativeCacheProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  void setUp() {
+    properties = new NegativeCacheProperties();
+    meterRegistry = new SimpleMeterRegistry();
+  }
+
+  @Test
+  void testContains() {
+    // Given
+    var negativeCache = new NegativeCache(properties, meterRegistry);
+
+    // When
+    negativeCache.add(ACCESS_URI, "was not found");
+
+    // Then
+    assertThat(negativeCache.contains(ACCESS_URI)).isTrue();
+    assertThat(negativeCache.contains(OTHER_ACCESS_URI)).isFalse();
+    assertThat(meterRegistry.get(NEGATIVE_CACHE_SIZE).gauge().value()).isEqualTo(1.0);
+  }
+
+  @Test
+  void testExpired() {
+    // Given
+    properties.setTtl(Duration.ZERO);
+    var negativeCache = new NegativeCache(properties, meterRegistry);
+
+    // When
+    negativeCache.add(ACCESS_URI, "was not found");
+
+    // Then
+    assertThat(negativeCache.contains(ACCESS_URI)).isFalse();
+    assertThat(negativeCache.size()).isZero();
+  }
+
+  @Test
+  void testEvictsOldestWhenFull() {
+    // Given
+    properties.setMaxSize(1);
+    var negativeCache = new NegativeCache(properties, meterRegistry);
+    negativeCache.add(ACCESS_URI, "was not found");
+
+    // When
+    negativeCache.add(OTHER_ACCESS_URI, "could not be decoded");
+
+    // Then
+    assertThat(negativeCache.contains(ACCESS_URI)).isFalse();
+    assertThat(negativeCache.contains(OTHER_ACCESS_URI)).isTrue();
+  }
+
+}
@@ -0,0 +1,104 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.component.PipelineStage.QUEUE_DEPTH;
+import static eu.dissco.core.digitalmediaderivativeservice.component.PipelineStage.STAGE_BLOCKED;
+import static eu.dissco.core.digitalmediaderivativeservice.component.PipelineStage.STAGE_UTILISATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PipelineStageTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private PipelineStage stage;
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    stage = new PipelineStage("test", 1, 1, Thread.ofVirtual().name("test-", 0).factory(),
+        meterRegistry);
+  }
+
+  @AfterEach
+  void destroy() {
+    stage.shutdown();
+  }
+
+  @Test
+  void testSubmit() {
+    // Given
+
+    // When
+    var result = stage.submit(() -> Thread.currentThread().getName());
+
+    // Then
+    assertThat(result).succeedsWithin(Duration.ofSeconds(5)).isEqualTo("test-0");
+  }
+
+  @Test
+  void testSubmitFailed() {
+    // Given
+
+    // When
+    var result = stage.submit(() -> {
+      throw new ProcessingFailedException("Failed");
+    });
+
+    // Then
+    assertThat(result).failsWithin(Duration.ofSeconds(5))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(ProcessingFailedException.class);
+  }
+
+  @Test
+  void testSubmitBlocksWhileFull() throws InterruptedException {
+    // Given
+    var started = new CountDownLatch(1);
+    var release = new CompletableFuture<Boolean>();
+    var running = stage.submit(() -> {
+      started.countDown();
+      return release.join();
+    });
+    started.await(5, TimeUnit.SECONDS);
+    var queued = stage.submit(() -> true);
+    var blocked = new CompletableFuture<CompletableFuture<Boolean>>();
+
+    // When
+    var submitter = Thread.ofPlatform().start(() -> blocked.complete(stage.submit(() -> true)));
+
+    // Then
+    while (submitter.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    assertThat(blocked).isNotDone();
+    assertThat(meterRegistry.get(QUEUE_DEPTH).gauge().value()).isEqualTo(1.0);
+    assertThat(meterRegistry.get(STAGE_UTILISATION).gauge().value()).isEqualTo(1.0);
+    release.complete(true);
+    assertThat(blocked.join()).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(true);
+    assertThat(running.join()).isTrue();
+    assertThat(queued.join()).isTrue();
+    assertThat(meterRegistry.get(STAGE_BLOCKED).timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void testDirectRunsOnCallingThread() {
+    // Given
+    var thread = Thread.currentThread();
+
+    // When
+    var result = PipelineStage.DIRECT.submit(Thread::currentThread);
+
+    // Then
+    assertThat(result).isCompletedWithValue(thread);
+  }
+
+}
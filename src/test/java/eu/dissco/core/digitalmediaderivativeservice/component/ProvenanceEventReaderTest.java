@@ -0,0 +1,113 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.getCreateUpdateTombstoneEvent;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMedia;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenProvenanceEventJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.ProvenanceEvent;
+import eu.dissco.core.digitalmediaderivativeservice.exception.InvalidEventException;
+import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMedia;
+import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import tools.jackson.databind.node.ObjectNode;
+
+class ProvenanceEventReaderTest {
+
+  private static final String EVENT_ID = "https://doi.org/TEST/WKT-SQB-ZNC/1";
+
+  private final ProvenanceEventReader eventReader = new ProvenanceEventReader(MAPPER);
+
+  static Stream<Arguments> invalidEventProvider() {
+    return Stream.of(
+        Arguments.of("[]"),
+        Arguments.of("{\"@id\": \"" + EVENT_ID + "\"}"),
+        Arguments.of("{\"prov:Activity\": {\"@type\": \"ods:Delete\"}}"),
+        Arguments.of("{\"prov:Activity\": {\"@type\": \"ods:Create\"}}"),
+        Arguments.of("""
+            {
+              "prov:Activity": {"@type": "ods:Create"},
+              "prov:Entity": {
+                "@type": "ods:DigitalSpecimen",
+                "prov:value": {"ods:someRandomProperty": "someRandomValue"}
+              }
+            }
+            """),
+        Arguments.of("""
+            {
+              "prov:Entity": {"@type": "ods:DigitalSpecimen", "prov:value": {}},
+              "prov:Activity": {"@type": "ods:Create"}
+            }
+            """)
+    );
+  }
+
+  private static byte[] toBytes(Object json) {
+    return MAPPER.writeValueAsString(json).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void testReadCreateEvent() throws InvalidEventException {
+    // Given
+    var body = toBytes(givenProvenanceEventJson());
+
+    // When
+    var result = eventReader.read(body);
+
+    // Then
+    assertThat(result).isEqualTo(new ProvenanceEvent(EVENT_ID, Type.ODS_CREATE,
+        givenDigitalMedia()));
+    assertThat(result.digitalMedia()).isEqualTo(MAPPER.convertValue(
+        getCreateUpdateTombstoneEvent().getProvEntity().getProvValue(), DigitalMedia.class));
+  }
+
+  @Test
+  void testReadEntityBeforeActivity() throws InvalidEventException {
+    // Given
+    var event = (ObjectNode) givenProvenanceEventJson();
+    var reordered = MAPPER.createObjectNode();
+    reordered.set("prov:Entity", event.get("prov:Entity"));
+    reordered.setAll(event);
+
+    // When
+    var result = eventReader.read(toBytes(reordered));
+
+    // Then
+    assertThat(result).isEqualTo(new ProvenanceEvent(EVENT_ID, Type.ODS_CREATE,
+        givenDigitalMedia()));
+  }
+
+  @Test
+  void testReadNonCreateEvent() throws InvalidEventException {
+    // Given
+    var event = (ObjectNode) givenProvenanceEventJson();
+    ((ObjectNode) event.get("prov:Activity")).put("@type", "ods:Tombstone");
+    // The entity is not read for other activities than a create
+    ((ObjectNode) event.get("prov:Entity")).put("prov:value", "not a Digital Media");
+
+    // When
+    var result = eventReader.read(toBytes(event));
+
+    // Then
+    assertThat(result).isEqualTo(new ProvenanceEvent(EVENT_ID, Type.ODS_TOMBSTONE, null));
+    assertThat(result.isCreate()).isFalse();
+  }
+
+  @MethodSource("invalidEventProvider")
+  @ParameterizedTest
+  void testReadInvalidEvent(String event) {
+    // Given
+    var body = event.getBytes(StandardCharsets.UTF_8);
+
+    // When / Then
+    assertThrows(InvalidEventException.class, () -> eventReader.read(body));
+  }
+
+}
@@ -0,0 +1,163 @@
+package eu.dissco.core.digitalmediaderivativeservice.component;
+
+import static eu.dissco.core.digitalmediaderivativeservice.component.RasterPool.POOL_REQUESTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.util.unit.DataSize;
+
+class RasterPoolTest {
+
+  private static final int SIZE = 1 << 20;
+
+  private BufferPoolProperties properties;
+  private SimpleMeterRegistry meterRegistry;
+  private RasterPool rasterPool;
+
+  static Stream<Arguments> sizeClassProvider() {
+    return Stream.of(
+        Arguments.of(3, 3),
+        Arguments.of(1 << 20, 1 << 20),
+        Arguments.of((1 << 20) + 1, 5 << 18),
+        Arguments.of(6_000_000, 6_291_456),
+        Arguments.of(1 << 30, 1 << 30)
+    );
+  }
+
+  @BeforeEach
+  void setUp() {
+    properties = new BufferPoolProperties();
+    meterRegistry = new SimpleMeterRegistry();
+    rasterPool = new RasterPool(properties, meterRegistry);
+  }
+
+  @MethodSource("sizeClassProvider")
+  @ParameterizedTest
+  void testGetSizeClass(int length, int expected) {
+    // Given
+
+    // When
+    var result = RasterPool.getSizeClass(length);
+
+    // Then
+    assertThat(result).isEqualTo(expected);
+  }
+
+  @Test
+  void testAllocateReusesArrayOfClosedLease() {
+    // Given
+    byte[] array;
+    try (var lease = rasterPool.lease()) {
+      array = RasterPool.allocate(SIZE - 10);
+    }
+
+    // When
+    byte[] result;
+    try (var lease = rasterPool.lease()) {
+      result = RasterPool.allocate(SIZE - 20);
+    }
+
+    // Then
+    assertThat(result).isSameAs(array);
+    assertThat(getRequests("hit")).isEqualTo(1.0);
+    assertThat(getRequests("miss")).isEqualTo(1.0);
+    assertThat(rasterPool.getRetainedBytes()).isEqualTo(SIZE);
+  }
+
+  @Test
+  void testReleaseWithinLease() {
+    // Given
+    try (var lease = rasterPool.lease()) {
+      var array = RasterPool.allocate(SIZE);
+
+      // When
+      RasterPool.release(array);
+      var result = RasterPool.allocate(SIZE);
+
+      // Then
+      assertThat(result).isSameAs(array);
+    }
+  }
+
+  @Test
+  void testReleaseIgnoresForeignArray() {
+    // Given
+    try (var lease = rasterPool.lease()) {
+
+      // When
+      RasterPool.release(new byte[SIZE]);
+
+      // Then
+      assertThat(rasterPool.getRetainedBytes()).isZero();
+    }
+  }
+
+  @Test
+  void testAllocateWithoutLease() {
+    // Given
+
+    // When
+    var result = RasterPool.allocate(SIZE + 1);
+
+    // Then
+    assertThat(result).hasSize(SIZE + 1);
+    assertThat(getRequests("miss")).isZero();
+  }
+
+  @Test
+  void testMaxRetained() {
+    // Given
+    properties.setMaxRetained(DataSize.ofBytes(SIZE));
+    rasterPool = new RasterPool(properties, meterRegistry);
+
+    // When
+    try (var lease = rasterPool.lease()) {
+      RasterPool.allocate(SIZE);
+      RasterPool.allocate(SIZE);
+    }
+
+    // Then
+    assertThat(rasterPool.getRetainedBytes()).isEqualTo(SIZE);
+  }
+
+  @Test
+  void testTrim() {
+    // Given
+    properties.setIdleTimeout(Duration.ZERO);
+    rasterPool = new RasterPool(properties, meterRegistry);
+    try (var lease = rasterPool.lease()) {
+      RasterPool.allocate(SIZE);
+    }
+
+    // When
+    rasterPool.trim();
+
+    // Then
+    assertThat(rasterPool.getRetainedBytes()).isZero();
+  }
+
+  @Test
+  void testNestedLease() {
+    // Given
+    try (var lease = rasterPool.lease()) {
+
+      // When / Then
+      assertThrows(IllegalStateException.class, rasterPool::lease);
+    }
+  }
+
+  private double getRequests(String result) {
+    return meterRegistry.get(POOL_REQUESTS).tags("pool", "raster", "result", result).counter()
+        .count();
+  }
+
+}
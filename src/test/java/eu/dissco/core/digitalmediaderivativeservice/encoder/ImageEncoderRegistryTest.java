@@ -0,0 +1,171 @@
+package eu.dissco.core.digitalmediaderivativeservice.encoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+class ImageEncoderRegistryTest {
+
+  private final JpegEncoder jpegEncoder = new JpegEncoder();
+  private ImageEncoderRegistry encoderRegistry;
+
+  @BeforeEach
+  void setUp() {
+    encoderRegistry = new ImageEncoderRegistry(List.of(jpegEncoder));
+  }
+
+  @Test
+  void testGetEncoder() throws ProcessingFailedException {
+    // Given
+
+    // When
+    var result = encoderRegistry.getEncoder("JPEG");
+
+    // Then
+    assertThat(result).isSameAs(jpegEncoder);
+    assertThat(result.getMimeType()).isEqualTo("image/jpeg");
+  }
+
+  @Test
+  void testGetEncoderAlias() throws ProcessingFailedException {
+    // Given
+
+    // When
+    var result = encoderRegistry.getEncoder("jpg");
+
+    // Then
+    assertThat(result).isSameAs(jpegEncoder);
+    assertThat(encoderRegistry.getFormat("JPG")).isEqualTo("jpeg");
+  }
+
+  @Test
+  void testGetEncoderImageIoPluginAlias() throws ProcessingFailedException {
+    // Given
+    var encoder = encoderRegistry.getEncoder("PNG");
+
+    // When
+    var result = encoderRegistry.getEncoder("png");
+
+    // Then
+    assertThat(result).isSameAs(encoder);
+    assertThat(result.getFormat()).isEqualTo("png");
+  }
+
+  @Test
+  void testGetFormatUnknownFormat() {
+    // Given
+
+    // When
+    var result = encoderRegistry.getFormat("Unknown");
+
+    // Then
+    assertThat(result).isEqualTo("unknown");
+  }
+
+  @Test
+  void testGetEncoderImageIoPlugin() throws ProcessingFailedException {
+    // Given
+
+    // When
+    var result = encoderRegistry.getEncoder("png");
+
+    // Then
+    assertThat(result).isInstanceOf(ImageIoEncoder.class);
+    assertThat(result.getMimeType()).isEqualTo("image/png");
+  }
+
+  @Test
+  void testGetEncoderUnknownFormat() {
+    // Given
+
+    // When / Then
+    assertThrows(ProcessingFailedException.class, () -> encoderRegistry.getEncoder("unknown"));
+  }
+
+  @Test
+  void testEncodeQuality() throws IOException {
+    // Given
+    var image = givenImage();
+
+    // When
+    var low = encode(image, DerivativeProfile.builder().quality(0.6f).build());
+    var high = encode(image, DerivativeProfile.builder().quality(0.9f).build());
+
+    // Then
+    assertThat(low.length).isLessThan(high.length);
+  }
+
+  @Test
+  void testEncodeOptimizedHuffman() throws IOException {
+    // Given
+    var image = givenImage();
+
+    // When
+    var optimized = encode(image, DerivativeProfile.builder().build());
+    var standard = encode(image, DerivativeProfile.builder().optimizeHuffman(false).build());
+
+    // Then
+    assertThat(optimized.length).isLessThan(standard.length);
+  }
+
+  @Test
+  void testEncodeProgressive() throws IOException {
+    // Given
+    var image = givenImage();
+
+    // When
+    var result = encode(image, DerivativeProfile.builder().progressive(true).build());
+
+    // Then
+    var reader = ImageIO.getImageReadersByFormatName("jpeg").next();
+    try (var input = ImageIO.createImageInputStream(new ByteArrayInputStream(result))) {
+      reader.setInput(input);
+      var metadata = reader.getImageMetadata(0).getAsTree("javax_imageio_1.0");
+      assertThat(reader.getWidth(0)).isEqualTo(image.getWidth());
+      assertThat(hasProgressiveScans(metadata)).isTrue();
+    } finally {
+      reader.dispose();
+    }
+  }
+
+  private static boolean hasProgressiveScans(org.w3c.dom.Node node) {
+    if ("Compression".equals(node.getNodeName())) {
+      for (var child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+        if ("NumProgressiveScans".equals(child.getNodeName())) {
+          var scans = child.getAttributes().getNamedItem("value").getNodeValue();
+          return Integer.parseInt(scans) > 1;
+        }
+      }
+    }
+    for (var child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (hasProgressiveScans(child)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private byte[] encode(BufferedImage image, DerivativeProfile profile) throws IOException {
+    var output = new ByteArrayOutputStream();
+    jpegEncoder.encode(image, profile, output);
+    return output.toByteArray();
+  }
+
+  private static BufferedImage givenImage() throws IOException {
+    return ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
+  }
+
+}
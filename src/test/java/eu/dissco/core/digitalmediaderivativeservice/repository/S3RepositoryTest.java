@@ -1,30 +1,54 @@
 package eu.dissco.core.digitalmediaderivativeservice.repository;
 
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.PREFIX;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
 import static org.mockito.Mockito.mock;
 
+import eu.dissco.core.digitalmediaderivativeservice.component.EncodeBufferPool;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.domain.StoredDerivative;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.ImageEncoderRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.JpegEncoder;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.S3UploadException;
 import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
 import eu.dissco.core.digitalmediaderivativeservice.property.S3Properties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
 import java.util.function.Consumer;
 import javax.imageio.ImageIO;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.ClassPathResource;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Publisher;
 
 @ExtendWith(MockitoExtension.class)
 class S3RepositoryTest {
@@ -35,63 +59,238 @@ class S3RepositoryTest {
   private S3Properties s3Properties;
   @Mock
   private ApplicationProperties applicationProperties;
+  @Captor
+  private ArgumentCaptor<Consumer<PutObjectRequest.Builder>> requestCaptor;
+  @Captor
+  private ArgumentCaptor<AsyncRequestBody> bodyCaptor;
+
+  private static final ImageHeader ORIGINAL = new ImageHeader("image/jpeg", 3000, 2000, 3,
+      "YCbCr");
+  private static final DerivativeProfile THUMBNAIL = DerivativeProfile.builder().name("Thumbnail")
+      .maxSize(400f).suffix("thumbnail").build();
 
   private S3Repository s3Repository;
 
   @BeforeEach
   void setUp() {
-    this.s3Repository = new S3Repository(s3AsyncClient, s3Properties, applicationProperties);
+    this.s3Repository = new S3Repository(s3AsyncClient, s3Properties, applicationProperties,
+        new EncodeBufferPool(new ApplicationProperties(), new PipelineProperties(),
+            new BufferPoolProperties(), new SimpleMeterRegistry()),
+        new ImageEncoderRegistry(List.of(new JpegEncoder())));
   }
 
   @Test
-  void testUploadResults()
-      throws IOException, ExecutionException, InterruptedException, ProcessingFailedException {
+  void testUploadResultsAsync() throws IOException, ProcessingFailedException {
     // Given
     var image = ImageIO.read(new File(
         new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
-    var mockResponse = mock(CompletableFuture.class);
+    var response = CompletableFuture.completedFuture(PutObjectResponse.builder().build());
     given(s3AsyncClient.putObject(any(Consumer.class), any(AsyncRequestBody.class))).willReturn(
-        mockResponse);
+        response);
     given(applicationProperties.getPrefix()).willReturn(PREFIX);
 
     // When
-    s3Repository.uploadResults(image, "https://doi.org/TEST/XXX-XXX-XXX", false);
+    var result = s3Repository.uploadResultsAsync(image, "https://doi.org/TEST/XXX-XXX-XXX",
+        DerivativeProfile.builder().name("Derivative").maxSize(2048f).quality(0.8f)
+            .suffix("derivative").build(), ORIGINAL);
 
     // Then
-    then(mockResponse).should().get();
+    assertThat(result).isSameAs(response);
   }
 
   @Test
-  void testUploadResultsExecutionException()
-      throws IOException, ExecutionException, InterruptedException {
+  void testUploadResultsAsyncRequest() throws IOException, ProcessingFailedException {
     // Given
     var image = ImageIO.read(new File(
         new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
-    var mockResponse = mock(CompletableFuture.class);
+    var response = CompletableFuture.completedFuture(PutObjectResponse.builder().build());
     given(s3AsyncClient.putObject(any(Consumer.class), any(AsyncRequestBody.class))).willReturn(
-        mockResponse);
-    given(mockResponse.get()).willThrow(ExecutionException.class);
+        response);
     given(applicationProperties.getPrefix()).willReturn(PREFIX);
+    given(s3Properties.getBucketName()).willReturn("bucket");
 
-    // When  / Then
-    assertThrows(S3UploadException.class,
-        () -> s3Repository.uploadResults(image, "https://doi.org/TEST/XXX-XXX-XXX", false));
+    // When
+    s3Repository.uploadResultsAsync(image, "https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        DerivativeProfile.builder().name("Thumbnail").maxSize(400f).format("png")
+            .suffix("thumbnail").build(), ORIGINAL);
+
+    // Then
+    then(s3AsyncClient).should().putObject(requestCaptor.capture(), bodyCaptor.capture());
+    var builder = PutObjectRequest.builder();
+    requestCaptor.getValue().accept(builder);
+    var request = builder.build();
+    var body = bodyCaptor.getValue();
+    assertThat(request.key()).isEqualTo("XXX-XXX-XXX/XXX-XXX-XXX-thumbnail.png");
+    assertThat(request.contentType()).isEqualTo("image/png");
+    assertThat(body.contentLength()).contains(request.contentLength());
+    assertThat(request.checksumCRC32C()).isNotBlank();
+    assertThat(request.metadata()).containsEntry("width", "1920").containsEntry("height", "1795")
+        .containsEntry("original-width", "3000").containsEntry("original-height", "2000");
   }
 
   @Test
-  void testUploadResultsInterruptedException()
-      throws IOException, ExecutionException, InterruptedException {
+  void testUploadResultsAsyncFormatAlias() throws IOException, ProcessingFailedException {
     // Given
     var image = ImageIO.read(new File(
         new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
-    var mockResponse = mock(CompletableFuture.class);
+    var response = CompletableFuture.completedFuture(PutObjectResponse.builder().build());
+    given(s3AsyncClient.putObject(any(Consumer.class), any(AsyncRequestBody.class))).willReturn(
+        response);
+    given(applicationProperties.getPrefix()).willReturn(PREFIX);
+
+    // When
+    s3Repository.uploadResultsAsync(image, "https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        DerivativeProfile.builder().name("Thumbnail").maxSize(400f).format("JPG")
+            .suffix("thumbnail").build(), ORIGINAL);
+
+    // Then
+    then(s3AsyncClient).should().putObject(requestCaptor.capture(), bodyCaptor.capture());
+    var builder = PutObjectRequest.builder();
+    requestCaptor.getValue().accept(builder);
+    assertThat(builder.build().key()).isEqualTo("XXX-XXX-XXX/XXX-XXX-XXX-thumbnail.jpeg");
+    assertThat(builder.build().contentType()).isEqualTo("image/jpeg");
+  }
+
+  @Test
+  void testUploadResultsAsyncUnknownFormat() throws IOException {
+    // Given
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
+
+    // When / Then
+    assertThrows(ProcessingFailedException.class,
+        () -> s3Repository.uploadResultsAsync(image, "https://doi.org/TEST/XXX-XXX-XXX",
+            DerivativeProfile.builder().name("Derivative").maxSize(2048f).format("unknown")
+                .suffix("derivative").build(), ORIGINAL));
+    then(s3AsyncClient).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testUploadOriginalAsync() throws IOException, ProcessingFailedException {
+    // Given
+    var file = Path.of(
+        new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath());
+    var response = CompletableFuture.completedFuture(PutObjectResponse.builder().build());
     given(s3AsyncClient.putObject(any(Consumer.class), any(AsyncRequestBody.class))).willReturn(
-        mockResponse);
-    given(mockResponse.get()).willThrow(InterruptedException.class);
+        response);
+    given(applicationProperties.getPrefix()).willReturn(PREFIX);
+
+    // When
+    var result = s3Repository.uploadOriginalAsync(file,
+        "https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        DerivativeProfile.builder().name("Derivative").maxSize(2048f).suffix("derivative")
+            .build(), new ImageHeader("image/jpeg", 1920, 1795, 3, "YCbCr"));
+
+    // Then
+    assertThat(result).isSameAs(response);
+    then(s3AsyncClient).should().putObject(requestCaptor.capture(), bodyCaptor.capture());
+    var builder = PutObjectRequest.builder();
+    requestCaptor.getValue().accept(builder);
+    assertThat(builder.build().key()).isEqualTo("XXX-XXX-XXX/XXX-XXX-XXX-derivative.jpeg");
+    assertThat(builder.build().contentType()).isEqualTo("image/jpeg");
+    assertThat(builder.build().metadata()).containsEntry("width", "1920")
+        .containsEntry("original-width", "1920");
+    assertThat(bodyCaptor.getValue().contentLength()).contains(Files.size(file));
+  }
+
+  @Test
+  void testFindDerivativeAsync() {
+    // Given
+    given(applicationProperties.getPrefix()).willReturn(PREFIX);
+    given(s3AsyncClient.headObject(any(Consumer.class))).willReturn(
+        CompletableFuture.completedFuture(HeadObjectResponse.builder().metadata(
+            Map.of("width", "400", "height", "373", "original-width", "1920",
+                "original-height", "1795")).build()));
+
+    // When
+    var result = s3Repository.findDerivativeAsync("https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        THUMBNAIL);
+
+    // Then
+    assertThat(result).isCompletedWithValue(new StoredDerivative(400, 373, 1920, 1795));
+  }
+
+  @Test
+  void testFindDerivativeAsyncNotFound() {
+    // Given
     given(applicationProperties.getPrefix()).willReturn(PREFIX);
+    given(s3AsyncClient.headObject(any(Consumer.class))).willReturn(
+        CompletableFuture.failedFuture(NoSuchKeyException.builder().build()));
+
+    // When
+    var result = s3Repository.findDerivativeAsync("https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        THUMBNAIL);
+
+    // Then
+    assertThat(result).isCompletedWithValue(null);
+  }
+
+  @Test
+  void testFindDerivativeAsyncWithoutMetadata() {
+    // Given
+    given(applicationProperties.getPrefix()).willReturn(PREFIX);
+    given(s3AsyncClient.headObject(any(Consumer.class))).willReturn(
+        CompletableFuture.completedFuture(HeadObjectResponse.builder().build()));
+
+    // When
+    var result = s3Repository.findDerivativeAsync("https://doi.org/" + PREFIX + "/XXX-XXX-XXX",
+        THUMBNAIL);
+
+    // Then
+    assertThat(result).isCompletedWithValue(null);
+  }
+
+  @Test
+  void testListKeys() {
+    // Given
+    var publisher = mock(ListObjectsV2Publisher.class);
+    given(s3AsyncClient.listObjectsV2Paginator(any(Consumer.class))).willReturn(publisher);
+    given(publisher.subscribe(any(Consumer.class))).willAnswer(invocation -> {
+      Consumer<ListObjectsV2Response> consumer = invocation.getArgument(0);
+      consumer.accept(ListObjectsV2Response.builder()
+          .contents(S3Object.builder().key("a/a-thumbnail.jpeg").build()).build());
+      consumer.accept(ListObjectsV2Response.builder()
+          .contents(S3Object.builder().key("b/b-thumbnail.jpeg").build()).build());
+      return CompletableFuture.completedFuture(null);
+    });
+    var keys = new ArrayList<String>();
+
+    // When
+    var result = s3Repository.listKeys(keys::add);
+
+    // Then
+    assertThat(result).isCompleted();
+    assertThat(keys).containsExactly("a/a-thumbnail.jpeg", "b/b-thumbnail.jpeg");
+  }
+
+  @Test
+  void testAwaitUploads() {
+    // Given
+    var uploads = List.of(CompletableFuture.completedFuture(PutObjectResponse.builder().build()),
+        CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+    // When / Then
+    assertDoesNotThrow(() -> s3Repository.awaitUploads(uploads));
+  }
+
+  @Test
+  void testAwaitUploadsExecutionException() {
+    // Given
+    var uploads = List.of(CompletableFuture.completedFuture(PutObjectResponse.builder().build()),
+        CompletableFuture.<PutObjectResponse>failedFuture(new IOException()));
+
+    // When  / Then
+    assertThrows(S3UploadException.class, () -> s3Repository.awaitUploads(uploads));
+  }
+
+  @Test
+  void testAwaitUploadsInterruptedException() {
+    // Given
+    var uploads = List.of(new CompletableFuture<PutObjectResponse>());
+    Thread.currentThread().interrupt();
 
     // When  / Then
-    assertThrows(S3UploadException.class,
-        () -> s3Repository.uploadResults(image, "https://doi.org/TEST/XXX-XXX-XXX", true));
+    assertThrows(S3UploadException.class, () -> s3Repository.awaitUploads(uploads));
+    assertThat(Thread.interrupted()).isTrue();
   }
 }
@@ -0,0 +1,127 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class PixelBufferTest {
+
+  @Test
+  void testOfGrayKeepsRaster() {
+    // Given
+    var image = new BufferedImage(4, 2, BufferedImage.TYPE_BYTE_GRAY);
+    image.getRaster().setSample(1, 0, 0, 64);
+
+    // When
+    var result = PixelBuffer.of(image);
+
+    // Then
+    assertThat(result.channels()).isEqualTo(PixelBuffer.GRAY);
+    assertThat(result.data()).hasSize(8);
+    assertThat(result.data()[1]).isEqualTo((byte) 64);
+    assertThat(result.toImage().getRaster().getSample(1, 0, 0)).isEqualTo(64);
+  }
+
+  @Test
+  void testOfSixteenBitGray() {
+    // Given
+    var image = new BufferedImage(2, 1, BufferedImage.TYPE_USHORT_GRAY);
+    image.getRaster().setSample(0, 0, 0, 0x8000);
+    image.getRaster().setSample(1, 0, 0, 0xFFFF);
+
+    // When
+    var result = PixelBuffer.of(image);
+
+    // Then
+    assertThat(result.channels()).isEqualTo(PixelBuffer.GRAY);
+    assertThat(result.data()).containsExactly(0x80, 0xFF);
+  }
+
+  @Test
+  void testOfCmyk() {
+    // Given
+    var image = givenCmykImage(new int[]{0, 0, 0, 0, 255, 0, 0, 0, 0, 0, 0, 255, 0, 128, 255, 64});
+
+    // When
+    var result = PixelBuffer.of(image);
+
+    // Then
+    assertThat(result.channels()).isEqualTo(PixelBuffer.BGR);
+    assertThat(result.data()).containsExactly(
+        255, 255, 255,
+        255, 255, 0,
+        0, 0, 0,
+        0, 95, 191);
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_4BYTE_ABGR})
+  void testOfAlphaCompositesOntoWhite(int type) {
+    // Given
+    var image = new BufferedImage(3, 1, type);
+    image.setRGB(0, 0, 0x00000000);
+    image.setRGB(1, 0, 0xFF102030);
+    image.setRGB(2, 0, 0x80000000);
+
+    // When
+    var result = PixelBuffer.of(image);
+
+    // Then
+    assertThat(result.channels()).isEqualTo(PixelBuffer.BGR);
+    assertThat(result.data()).containsExactly(
+        255, 255, 255,
+        0x30, 0x20, 0x10,
+        127, 127, 127);
+  }
+
+  /*
+   * The JPEG reader returns Adobe CMYK and YCCK images with a CMYK color space and inverted
+   * samples already restored, which is what this image mimics.
+   */
+  private static BufferedImage givenCmykImage(int[] samples) {
+    var width = samples.length / 4;
+    var colorModel = new ComponentColorModel(new CmykColorSpace(), false, false,
+        Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+    var raster = Raster.createInterleavedRaster(DataBuffer.TYPE_BYTE, width, 1, 4, null);
+    raster.setPixels(0, 0, width, 1, samples);
+    return new BufferedImage(colorModel, raster, false, null);
+  }
+
+  private static class CmykColorSpace extends ColorSpace {
+
+    CmykColorSpace() {
+      super(TYPE_CMYK, 4);
+    }
+
+    @Override
+    public float[] toRGB(float[] value) {
+      var black = 1 - value[3];
+      return new float[]{(1 - value[0]) * black, (1 - value[1]) * black, (1 - value[2]) * black};
+    }
+
+    @Override
+    public float[] fromRGB(float[] rgb) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public float[] toCIEXYZ(float[] value) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public float[] fromCIEXYZ(float[] value) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
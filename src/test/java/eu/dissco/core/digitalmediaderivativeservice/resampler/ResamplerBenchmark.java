@@ -0,0 +1,98 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the resamplers on a 24 megapixel source scaled to the default derivative size, with and
+ * without splitting the passes into row bands and with the scalar and Vector API kernels. GRAPHICS
+ * is the plain Graphics2D drawImage and ignores both. The score is the time per source megapixel.
+ * Run with {@code mvn test-compile exec:exec@resampler-benchmark}, which first prints the PSNR of
+ * every resampler against a reference rendered at the target size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ResamplerBenchmark {
+
+  private static final int SOURCE_WIDTH = 6000;
+  private static final int SOURCE_HEIGHT = 4000;
+  private static final int TARGET_WIDTH = 2048;
+  private static final int TARGET_HEIGHT = 1365;
+  private static final int SOURCE_MEGAPIXELS = SOURCE_WIDTH * SOURCE_HEIGHT / 1_000_000;
+
+  @Param({"GRAPHICS", "PROGRESSIVE_BILINEAR", "AREA_AVERAGING", "LANCZOS3"})
+  private ResamplerType type;
+
+  // Threads of the row band executor, 1 resizes on the calling thread
+  @Param({"1", "4"})
+  private int parallelism;
+
+  @Param({"false", "true"})
+  private boolean vectorized;
+
+  private RowBandExecutor bandExecutor;
+  private Resampler resampler;
+  private BufferedImage source;
+
+  public static void main(String[] args) throws RunnerException {
+    var source = ResamplerTest.givenDetailedImage(SOURCE_WIDTH, SOURCE_HEIGHT);
+    var reference = ResamplerTest.givenSmoothImage(TARGET_WIDTH, TARGET_HEIGHT,
+        BufferedImage.TYPE_3BYTE_BGR);
+    for (var type : ResamplerType.values()) {
+      var result = createResampler(type, RowBandExecutor.SEQUENTIAL, FilterKernel.SCALAR).resample(source, TARGET_WIDTH, TARGET_HEIGHT);
+      System.out.printf("%-21s PSNR %.2f dB%n", type, ResamplerTest.psnr(result, reference));
+    }
+    new Runner(new OptionsBuilder().include(ResamplerBenchmark.class.getSimpleName()).build())
+        .run();
+  }
+
+  private static Resampler createResampler(ResamplerType type, RowBandExecutor bandExecutor,
+      FilterKernel kernel) {
+    return switch (type) {
+      case GRAPHICS -> new GraphicsResampler();
+      case PROGRESSIVE_BILINEAR -> new ProgressiveBilinearResampler(bandExecutor, kernel);
+      case AREA_AVERAGING -> new AreaAveragingResampler(bandExecutor, kernel);
+      case LANCZOS3 -> new LanczosResampler(bandExecutor, kernel);
+    };
+  }
+
+  @Setup
+  public void setup() {
+    bandExecutor = new RowBandExecutor(parallelism, 0);
+    resampler = createResampler(type, bandExecutor,
+        vectorized ? FilterKernel.vector() : FilterKernel.SCALAR);
+    source = ResamplerTest.givenDetailedImage(SOURCE_WIDTH, SOURCE_HEIGHT);
+  }
+
+  @TearDown
+  public void tearDown() {
+    bandExecutor.shutdown();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SOURCE_MEGAPIXELS)
+  public BufferedImage resample() {
+    return resampler.resample(source, TARGET_WIDTH, TARGET_HEIGHT);
+  }
+
+}
@@ -0,0 +1,304 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import eu.dissco.core.digitalmediaderivativeservice.component.RasterPool;
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class ResamplerTest {
+
+  private static final RowBandExecutor BAND_EXECUTOR = new RowBandExecutor(4, 0);
+
+  static Stream<Arguments> filterProvider() {
+    return Stream.of(
+        Arguments.of(new AreaAveragingResampler()),
+        Arguments.of(new ProgressiveBilinearResampler()),
+        Arguments.of(new LanczosResampler())
+    );
+  }
+
+  static Stream<Arguments> parallelProvider() {
+    return Stream.of(
+        Arguments.of(new AreaAveragingResampler(),
+            new AreaAveragingResampler(BAND_EXECUTOR, FilterKernel.SCALAR)),
+        Arguments.of(new ProgressiveBilinearResampler(),
+            new ProgressiveBilinearResampler(BAND_EXECUTOR, FilterKernel.SCALAR)),
+        Arguments.of(new LanczosResampler(),
+            new LanczosResampler(BAND_EXECUTOR, FilterKernel.SCALAR))
+    );
+  }
+
+  static Stream<Arguments> vectorProvider() {
+    // Without the vector profile the tests are skipped, see assumeVectorAvailable
+    var kernel = FilterKernel.isVectorAvailable() ? FilterKernel.vector() : FilterKernel.SCALAR;
+    return Stream.of(
+        Arguments.of(new AreaAveragingResampler(),
+            new AreaAveragingResampler(RowBandExecutor.SEQUENTIAL, kernel)),
+        Arguments.of(new ProgressiveBilinearResampler(),
+            new ProgressiveBilinearResampler(RowBandExecutor.SEQUENTIAL, kernel)),
+        Arguments.of(new LanczosResampler(),
+            new LanczosResampler(BAND_EXECUTOR, kernel))
+    );
+  }
+
+  static Stream<Arguments> psnrProvider() {
+    return Stream.of(
+        Arguments.of(new GraphicsResampler(), 20.0),
+        Arguments.of(new AreaAveragingResampler(), 35.0),
+        Arguments.of(new ProgressiveBilinearResampler(), 35.0),
+        Arguments.of(new LanczosResampler(), 35.0)
+    );
+  }
+
+  @AfterAll
+  static void destroy() {
+    BAND_EXECUTOR.shutdown();
+  }
+
+  @ParameterizedTest
+  @MethodSource("psnrProvider")
+  void testResamplePsnr(Resampler resampler, double minimumPsnr) {
+    // Given
+    var source = givenDetailedImage(1600, 1200);
+
+    // When
+    var result = resampler.resample(source, 400, 300);
+
+    // Then
+    assertThat(result.getWidth()).isEqualTo(400);
+    assertThat(result.getHeight()).isEqualTo(300);
+    assertThat(psnr(result, givenSmoothImage(400, 300, BufferedImage.TYPE_3BYTE_BGR)))
+        .isGreaterThan(minimumPsnr);
+  }
+
+  @ParameterizedTest
+  @MethodSource("filterProvider")
+  void testResampleDoesNotAlias(Resampler resampler) {
+    // Given
+    var source = givenCheckerboard(1200, 800);
+
+    // When
+    var result = resampler.resample(source, 300, 200);
+
+    // Then
+    for (int y = 0; y < result.getHeight(); y++) {
+      for (int x = 0; x < result.getWidth(); x++) {
+        assertThat(result.getRGB(x, y) & 0xFF).isBetween(124, 131);
+      }
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("filterProvider")
+  void testResampleIndependentOfSourceType(Resampler resampler) {
+    // Given
+    var bgrImage = givenSmoothImage(640, 480, BufferedImage.TYPE_3BYTE_BGR);
+    var rgbImage = givenSmoothImage(640, 480, BufferedImage.TYPE_INT_RGB);
+
+    // When
+    var bgrResult = resampler.resample(bgrImage, 213, 160);
+    var rgbResult = resampler.resample(rgbImage, 213, 160);
+
+    // Then
+    assertThat(psnr(bgrResult, rgbResult)).isInfinite();
+  }
+
+  @ParameterizedTest
+  @MethodSource("parallelProvider")
+  void testParallelResampleIsIdentical(Resampler sequential, Resampler parallel) {
+    // Given
+    var source = givenDetailedImage(1600, 1200);
+
+    // When
+    var sequentialResult = sequential.resample(source, 457, 343);
+    var parallelResult = parallel.resample(source, 457, 343);
+
+    // Then
+    assertThat(psnr(parallelResult, sequentialResult)).isInfinite();
+  }
+
+  @ParameterizedTest
+  @MethodSource("vectorProvider")
+  void testVectorResampleIsIdentical(Resampler scalar, Resampler vector) {
+    // Given
+    assumeVectorAvailable();
+    var source = givenDetailedImage(1601, 1203);
+
+    // When
+    var scalarResult = scalar.resample(source, 457, 343);
+    var vectorResult = vector.resample(source, 457, 343);
+
+    // Then
+    assertThat(psnr(vectorResult, scalarResult)).isInfinite();
+  }
+
+  @ParameterizedTest
+  @MethodSource("vectorProvider")
+  void testResampleGrayStaysGray(Resampler scalar, Resampler vector) {
+    // Given
+    assumeVectorAvailable();
+    var source = givenGrayImage(1601, 1203);
+
+    // When
+    var scalarResult = scalar.resample(source, 457, 343);
+    var vectorResult = vector.resample(source, 457, 343);
+
+    // Then
+    assertThat(scalarResult.getRaster().getNumBands()).isEqualTo(1);
+    assertThat(vectorResult.getRaster().getNumBands()).isEqualTo(1);
+    assertThat(vectorResult.getRaster().getPixels(0, 0, 457, 343, (int[]) null))
+        .isEqualTo(scalarResult.getRaster().getPixels(0, 0, 457, 343, (int[]) null));
+  }
+
+  @ParameterizedTest
+  @MethodSource("filterProvider")
+  void testResampleWithPooledRasters(Resampler resampler) {
+    // Given
+    var rasterPool = new RasterPool(new BufferPoolProperties(), new SimpleMeterRegistry());
+    var expected = resampler.resample(givenDetailedImage(1600, 1200), 457, 343);
+    try (var lease = rasterPool.lease()) {
+      // Leaves rasters with other content in the pool
+      resampler.resample(givenSmoothImage(1600, 1200, BufferedImage.TYPE_INT_RGB), 457, 343);
+    }
+
+    // When
+    try (var lease = rasterPool.lease()) {
+      var result = resampler.resample(givenDetailedImage(1600, 1200), 457, 343);
+
+      // Then
+      assertThat(psnr(result, expected)).isInfinite();
+    }
+  }
+
+  @Test
+  void testResampleReleasesIntermediateRaster() {
+    // Given
+    var rasterPool = new RasterPool(new BufferPoolProperties(), new SimpleMeterRegistry());
+    var resampler = new LanczosResampler();
+
+    // When
+    try (var lease = rasterPool.lease()) {
+      resampler.resample(givenDetailedImage(1600, 1200), 400, 300);
+
+      // Then
+      assertThat(rasterPool.getRetainedBytes()).isBetween(400L * 1200 * PixelBuffer.BGR,
+          400L * 1200 * PixelBuffer.BGR * 5 / 4);
+    }
+    assertThat(rasterPool.getRetainedBytes()).isGreaterThan(
+        400L * 1200 * PixelBuffer.BGR + 400L * 300 * PixelBuffer.BGR);
+  }
+
+  @Test
+  void testGetResampler() {
+    // Given
+    var areaAveragingResampler = new AreaAveragingResampler();
+    var registry = new ResamplerRegistry(
+        List.of(new GraphicsResampler(), areaAveragingResampler));
+
+    // When
+    var result = registry.getResampler(ResamplerType.AREA_AVERAGING);
+
+    // Then
+    assertThat(result).isSameAs(areaAveragingResampler);
+  }
+
+  @Test
+  void testGetResamplerMissing() {
+    // Given
+    var registry = new ResamplerRegistry(List.of(new GraphicsResampler()));
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class,
+        () -> registry.getResampler(ResamplerType.LANCZOS3));
+  }
+
+  static BufferedImage givenSmoothImage(int width, int height, int type) {
+    return givenImage(width, height, type, false);
+  }
+
+  private static void assumeVectorAvailable() {
+    assumeTrue(FilterKernel.isVectorAvailable(),
+        "Requires the vector profile and module " + FilterKernel.VECTOR_MODULE);
+  }
+
+  static BufferedImage givenDetailedImage(int width, int height) {
+    return givenImage(width, height, BufferedImage.TYPE_3BYTE_BGR, true);
+  }
+
+  /*
+   * Low frequency pattern which is defined in relative coordinates, so the same pattern rendered
+   * at the target size is the reference for a downscaled version. The optional detail has a
+   * period of 2.5 source pixels, which a downscaled image can not represent and should average
+   * out instead of showing up as aliasing.
+   */
+  private static BufferedImage givenImage(int width, int height, int type, boolean detail) {
+    var image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        var u = (x + 0.5) / width;
+        var v = (y + 0.5) / height;
+        var texture = detail ? Math.sin(x * 0.8 * Math.PI) * Math.sin(y * 0.8 * Math.PI) : 0.0;
+        var red = channel(Math.sin(u * 2 * Math.PI * 3), texture);
+        var green = channel(Math.cos(v * 2 * Math.PI * 2), texture);
+        var blue = channel(Math.sin((u + v) * 2 * Math.PI * 2), texture);
+        image.setRGB(x, y, red << 16 | green << 8 | blue);
+      }
+    }
+    return image;
+  }
+
+  // The green channel of the detailed image
+  private static BufferedImage givenGrayImage(int width, int height) {
+    var bgr = givenDetailedImage(width, height).getRaster().getPixels(0, 0, width, height,
+        (int[]) null);
+    var image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    var gray = new int[width * height];
+    for (int i = 0; i < gray.length; i++) {
+      gray[i] = bgr[i * 3 + 1];
+    }
+    image.getRaster().setPixels(0, 0, width, height, gray);
+    return image;
+  }
+
+  private static int channel(double value, double texture) {
+    return (int) Math.round(127.5 + value * 80 + texture * 40);
+  }
+
+  private static BufferedImage givenCheckerboard(int width, int height) {
+    var image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, (x + y) % 2 == 0 ? 0xFFFFFF : 0);
+      }
+    }
+    return image;
+  }
+
+  static double psnr(BufferedImage image, BufferedImage reference) {
+    var squaredError = 0.0;
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        var pixel = image.getRGB(x, y);
+        var referencePixel = reference.getRGB(x, y);
+        for (int shift = 0; shift < 24; shift += 8) {
+          var difference = ((pixel >> shift) & 0xFF) - ((referencePixel >> shift) & 0xFF);
+          squaredError += difference * difference;
+        }
+      }
+    }
+    var meanSquaredError = squaredError / (image.getWidth() * image.getHeight() * 3.0);
+    return 10 * Math.log10(255.0 * 255.0 / meanSquaredError);
+  }
+
+}
@@ -0,0 +1,52 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class RowBandExecutorTest {
+
+  private final RowBandExecutor bandExecutor = new RowBandExecutor(4, 1000);
+
+  @AfterEach
+  void destroy() {
+    bandExecutor.shutdown();
+  }
+
+  @Test
+  void testExecuteProcessesEveryRowOnce() {
+    // Given
+    var rows = new AtomicIntegerArray(1001);
+    var threads = ConcurrentHashMap.<Thread>newKeySet();
+
+    // When
+    bandExecutor.execute(rows.length(), 1000, (fromRow, toRow) -> {
+      threads.add(Thread.currentThread());
+      for (int y = fromRow; y < toRow; y++) {
+        rows.incrementAndGet(y);
+      }
+    });
+
+    // Then
+    for (int y = 0; y < rows.length(); y++) {
+      assertThat(rows.get(y)).isEqualTo(1);
+    }
+    assertThat(threads).doesNotContain(Thread.currentThread());
+  }
+
+  @Test
+  void testExecuteBelowThreshold() {
+    // Given
+    var threads = ConcurrentHashMap.<Thread>newKeySet();
+
+    // When
+    bandExecutor.execute(1001, 999, (fromRow, toRow) -> threads.add(Thread.currentThread()));
+
+    // Then
+    assertThat(threads).containsExactly(Thread.currentThread());
+  }
+
+}
@@ -0,0 +1,65 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.ResamplerTest.givenDetailedImage;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.ResamplerTest.psnr;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class StreamingAreaAveragerTest {
+
+  static Stream<Arguments> stripProvider() {
+    return Stream.of(
+        Arguments.of(1),
+        Arguments.of(7),
+        Arguments.of(64),
+        Arguments.of(1200)
+    );
+  }
+
+  @ParameterizedTest
+  @MethodSource("stripProvider")
+  void testMatchesAreaAveragingResampler(int stripHeight) {
+    // Given
+    var source = givenDetailedImage(1600, 1200);
+    var averager = new StreamingAreaAverager(1600, 1200, 457, 343);
+
+    // When
+    for (int y = 0; y < source.getHeight(); y += stripHeight) {
+      averager.accept(
+          source.getSubimage(0, y, 1600, Math.min(stripHeight, source.getHeight() - y)));
+    }
+    var result = averager.getResult();
+
+    // Then
+    assertThat(psnr(result, new AreaAveragingResampler().resample(source, 457, 343)))
+        .isInfinite();
+  }
+
+  @Test
+  void testGetResultIncomplete() {
+    // Given
+    var source = givenDetailedImage(800, 600);
+    var averager = new StreamingAreaAverager(800, 600, 200, 150);
+    averager.accept(source.getSubimage(0, 0, 800, 300));
+
+    // When / Then
+    assertThrows(IllegalStateException.class, averager::getResult);
+  }
+
+  @Test
+  void testAcceptWrongWidth() {
+    // Given
+    var averager = new StreamingAreaAverager(800, 600, 200, 150);
+
+    // When / Then
+    assertThrows(IllegalArgumentException.class,
+        () -> averager.accept(givenDetailedImage(400, 100)));
+  }
+
+}
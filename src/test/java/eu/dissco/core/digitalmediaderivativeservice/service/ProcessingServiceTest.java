@@ -1,32 +1,70 @@
 package eu.dissco.core.digitalmediaderivativeservice.service;
 
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.CREATED;
-import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
-import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.getCreateUpdateTombstoneEvent;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMedia;
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaWithDerivativeEvent;
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 
+import eu.dissco.core.digitalmediaderivativeservice.component.DerivativeIndex;
+import eu.dissco.core.digitalmediaderivativeservice.component.HeapBudgetComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.HostScheduler;
+import eu.dissco.core.digitalmediaderivativeservice.component.ImageDecoderComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.ImageFetchComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.NegativeCache;
+import eu.dissco.core.digitalmediaderivativeservice.component.PipelineStage;
+import eu.dissco.core.digitalmediaderivativeservice.component.ProcessingPipeline;
+import eu.dissco.core.digitalmediaderivativeservice.component.RasterPool;
+import eu.dissco.core.digitalmediaderivativeservice.domain.DecodedImage;
 import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
+import eu.dissco.core.digitalmediaderivativeservice.domain.FetchedImage;
+import eu.dissco.core.digitalmediaderivativeservice.domain.ImageHeader;
+import eu.dissco.core.digitalmediaderivativeservice.domain.StoredDerivative;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.ImageEncoderRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.encoder.JpegEncoder;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageNotFoundException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.S3UploadException;
 import eu.dissco.core.digitalmediaderivativeservice.property.ApplicationProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.BufferPoolProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.CircuitBreakerProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.DerivativeProfile;
+import eu.dissco.core.digitalmediaderivativeservice.property.HeapBudgetProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.ImageFetchProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.NegativeCacheProperties;
 import eu.dissco.core.digitalmediaderivativeservice.repository.S3Repository;
-import eu.dissco.core.digitalmediaderivativeservice.schema.CreateUpdateTombstoneEvent;
-import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity;
-import eu.dissco.core.digitalmediaderivativeservice.schema.ProvActivity.Type;
-import eu.dissco.core.digitalmediaderivativeservice.schema.ProvEntity;
-import eu.dissco.core.digitalmediaderivativeservice.schema.ProvValue;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.AreaAveragingResampler;
+import eu.dissco.core.digitalmediaderivativeservice.resampler.ResamplerRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.schema.DigitalMedia;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import javax.imageio.ImageIO;
 import org.junit.jupiter.api.AfterEach;
@@ -36,23 +74,38 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
-import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.ClassPathResource;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
 
 @ExtendWith(MockitoExtension.class)
 class ProcessingServiceTest {
 
+  private static final URI ACCESS_URI = URI.create(
+      "https://medialib.naturalis.nl/file/id/RMNH.INS.1339663_1/format/large");
+  private static final Path SPOOL_FILE = Path.of("target/test-spool-file.tmp");
+
   @Mock
   private S3Repository s3Repository;
   @Mock
   private RabbitMqPublisherService rabbitMqPublisherService;
+  @Mock
+  private ImageFetchComponent imageFetcher;
+  @Mock
+  private ImageDecoderComponent imageDecoder;
+  @Mock
+  private DerivativeIndex derivativeIndex;
   @Captor
   private ArgumentCaptor<BufferedImage> imageCaptor;
+  @Captor
+  private ArgumentCaptor<DigitalMediaEvent> eventCaptor;
+  private ApplicationProperties properties;
   private MockedStatic<Instant> mockedInstant;
   private MockedStatic<Clock> mockedClock;
 
@@ -75,48 +128,36 @@ class ProcessingServiceTest {
     );
   }
 
-  static Stream<Arguments> invalidMessageProvider() {
+  static Stream<Arguments> ignoredMessageProvider() {
     return Stream.of(
-        Arguments.of(
-            new CreateUpdateTombstoneEvent().withProvActivity(
-                new ProvActivity().withType(Type.ODS_CREATE)).withProvEntity(
-                new ProvEntity().withType("ods:DigitalSpecimen").withProvValue(
-                    new ProvValue().withAdditionalProperty("ods:someRandomProperty",
-                        "someRandomValue"))))
+        Arguments.of(new DigitalMedia().withDctermsFormat("application/json")),
+        Arguments.of(new DigitalMedia().withAcAccessURI("https://an-test-server")
+            .withDctermsFormat("application/json"))
     );
   }
 
-  static Stream<Arguments> ignoredMessageProvider() {
+  static Stream<Arguments> unusableStoredDerivativeProvider() {
     return Stream.of(
-        Arguments.of(
-            new CreateUpdateTombstoneEvent().withProvActivity(
-                new ProvActivity().withType(Type.ODS_TOMBSTONE)).withProvEntity(
-                new ProvEntity().withType("ods:DigitalSpecimen").withProvValue(
-                    new ProvValue().withAdditionalProperty("ods:someRandomProperty",
-                        "someRandomValue")))
-        ),
-        Arguments.of(
-            new CreateUpdateTombstoneEvent().withProvActivity(
-                new ProvActivity().withType(Type.ODS_CREATE)).withProvEntity(
-                new ProvEntity().withType("ods:DigitalMedia").withProvValue(
-                    new ProvValue().withAdditionalProperty("dcterms:format",
-                        "application/json")))),
-        Arguments.of(
-            new CreateUpdateTombstoneEvent().withProvActivity(
-                new ProvActivity().withType(Type.ODS_CREATE)).withProvEntity(
-                new ProvEntity().withType("ods:DigitalMedia").withProvValue(
-                    new ProvValue().withAdditionalProperty("ac:accessURI", "https://an-test-server")
-                        .withAdditionalProperty("dcterms:format",
-                            "application/json"))))
+        Arguments.of((StoredDerivative) null),
+        Arguments.of(new StoredDerivative(400, 400, 1920, 1795))
     );
   }
 
   @BeforeEach
   void setUp() {
-    var properties = new ApplicationProperties();
+    properties = new ApplicationProperties();
     properties.setApiUrl("https://dev.dissco.tech/api/dm/v1/");
-    this.processingService = new ProcessingService(MAPPER, properties,
-        s3Repository, rabbitMqPublisherService);
+    this.processingService = new ProcessingService(properties,
+        s3Repository, rabbitMqPublisherService, imageFetcher,
+        new HostScheduler(new ImageFetchProperties(), new CircuitBreakerProperties(),
+            new SimpleMeterRegistry()),
+        new NegativeCache(new NegativeCacheProperties(), new SimpleMeterRegistry()),
+        derivativeIndex, imageDecoder,
+        new HeapBudgetComponent(new HeapBudgetProperties()),
+        new RasterPool(new BufferPoolProperties(), new SimpleMeterRegistry()),
+        ProcessingPipeline.DIRECT,
+        new ResamplerRegistry(List.of(new AreaAveragingResampler())),
+        new ImageEncoderRegistry(List.of(new JpegEncoder())));
     Clock clock = Clock.fixed(CREATED, ZoneOffset.UTC);
     Instant instant = Instant.now(clock);
     mockedInstant = mockStatic(Instant.class);
@@ -127,6 +168,27 @@ class ProcessingServiceTest {
     mockedClock.when(Clock::systemUTC).thenReturn(clock);
   }
 
+  private void givenFetchedImage() throws ProcessingFailedException {
+    given(imageFetcher.fetch(ACCESS_URI)).willReturn(
+        new FetchedImage(SPOOL_FILE, "image/jpeg", 0L));
+  }
+
+  private void givenImageHeader(int width, int height, String colorSpace) throws IOException {
+    given(imageDecoder.readHeader(SPOOL_FILE)).willReturn(
+        new ImageHeader("image/jpeg", width, height, 3, colorSpace));
+  }
+
+  private void givenUploads() throws ProcessingFailedException {
+    given(s3Repository.uploadResultsAsync(any(BufferedImage.class), anyString(),
+        any(DerivativeProfile.class), any(ImageHeader.class)))
+        .willReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+  }
+
+  private void givenPublish() {
+    given(rabbitMqPublisherService.publishDigitalMediaEvent(any(DigitalMediaEvent.class)))
+        .willReturn(CompletableFuture.completedFuture(null));
+  }
+
   @AfterEach
   void destroy() {
     mockedInstant.close();
@@ -138,79 +200,445 @@ class ProcessingServiceTest {
   void testHandleMessage(String testFileName, int width, int height,
       DigitalMediaEvent expectedDigitalMediaEvent) throws ProcessingFailedException, IOException {
     // Given
-    var event = getCreateUpdateTombstoneEvent();
+    var media = givenDigitalMedia();
     var image = ImageIO.read(new File(
         new ClassPathResource("src/test/resources/test-images/" + testFileName).getPath()));
-    try (MockedStatic<ImageIO> utilities = Mockito.mockStatic(ImageIO.class)) {
-      utilities.when(() -> ImageIO.read(
-          URI.create("https://medialib.naturalis.nl/file/id/RMNH.INS.1339663_1/format/large")
-              .toURL())).thenReturn(image);
-
-      // When
-      processingService.handleMessage(event);
-
-      // Then
-      then(s3Repository).should()
-          .uploadResults(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"), eq(false));
-      then(s3Repository).should()
-          .uploadResults(any(BufferedImage.class), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
-              eq(true));
-      then(rabbitMqPublisherService).should().publishDigitalMediaEvent(expectedDigitalMediaEvent);
-      assertThat(imageCaptor.getValue().getWidth()).isEqualTo(width);
-      assertThat(imageCaptor.getValue().getHeight()).isEqualTo(height);
-    }
-  }
-
-  @MethodSource("invalidMessageProvider")
-  @ParameterizedTest
-  void testInvalidDigitalMediaObject(CreateUpdateTombstoneEvent event) {
+    // Pass-through of small originals is covered by testHandleMessagePassThrough
+    properties.getDerivativeProfiles().forEach(profile -> profile.setPassThrough(false));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(s3Repository).should()
+        .uploadResultsAsync(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(0)), any(ImageHeader.class));
+    then(s3Repository).should()
+        .uploadResultsAsync(any(BufferedImage.class), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(1)), any(ImageHeader.class));
+    then(s3Repository).should().awaitUploads(anyList());
+    then(derivativeIndex).should().addDerivatives("https://doi.org/TEST/WKT-SQB-ZNC");
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(expectedDigitalMediaEvent);
+    assertThat(imageCaptor.getValue().getWidth()).isEqualTo(width);
+    assertThat(imageCaptor.getValue().getHeight()).isEqualTo(height);
+  }
+
+  @Test
+  void testHandleMessageSubsampledImage() throws ProcessingFailedException, IOException {
     // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    var subsampledImage = new BufferedImage(image.getWidth() / 2, image.getHeight() / 2,
+        BufferedImage.TYPE_INT_RGB);
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(subsampledImage, image.getWidth(), image.getHeight()));
+    givenUploads();
+    givenPublish();
 
-    // When / Then
-    assertThrows(ProcessingFailedException.class, () -> processingService.handleMessage(event));
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(s3Repository).should()
+        .uploadResultsAsync(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(0)), any(ImageHeader.class));
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(
+        givenDigitalMediaWithDerivativeEvent(3000, 3000, 2048, 2048, 400, 400));
+    assertThat(imageCaptor.getValue().getWidth()).isEqualTo(2048);
+  }
+
+  @Test
+  void testHandleMessageStreamingImage() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.estimateRasterBytes(any(ImageHeader.class), eq(2048f))).willReturn(
+        properties.getStreamingThreshold().toBytes() + 1);
+    given(imageDecoder.getDecodedDimension(any(ImageHeader.class), eq(2048f))).willReturn(
+        new Dimension(image.getWidth(), image.getHeight()));
+    given(imageDecoder.decodeStrips(eq(SPOOL_FILE), eq(2048f), anyLong(), any()))
+        .willAnswer(invocation -> {
+          Consumer<BufferedImage> consumer = invocation.getArgument(3);
+          for (int y = 0; y < image.getHeight(); y += 1000) {
+            consumer.accept(image.getSubimage(0, y, image.getWidth(), 1000));
+          }
+          return true;
+        });
+    givenUploads();
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(imageDecoder).should(never()).decode(any(Path.class), anyFloat());
+    then(s3Repository).should()
+        .uploadResultsAsync(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(0)), any(ImageHeader.class));
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(
+        givenDigitalMediaWithDerivativeEvent(3000, 3000, 2048, 2048, 400, 400));
+    assertThat(imageCaptor.getValue().getWidth()).isEqualTo(2048);
   }
 
   @MethodSource("ignoredMessageProvider")
   @ParameterizedTest
-  void testIgnoredDigitalMediaObject(CreateUpdateTombstoneEvent event)
+  void testIgnoredDigitalMediaObject(DigitalMedia media)
       throws ProcessingFailedException {
     // Given
 
     // When
-    processingService.handleMessage(event);
+    processingService.handleMessage(media).join();
 
     // Then
     then(s3Repository).shouldHaveNoInteractions();
     then(rabbitMqPublisherService).shouldHaveNoInteractions();
   }
 
+  @ParameterizedTest
+  @NullAndEmptySource
+  @ValueSource(strings = {" ", "https://an image server/image.jpg", "ftp://example.org/image.jpg",
+      "/image.jpg"})
+  void testInvalidAccessUri(String accessUri) {
+    // Given
+    var media = givenDigitalMedia().withAcAccessURI(accessUri);
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(ImageRejectedException.class);
+    then(imageFetcher).shouldHaveNoInteractions();
+    then(derivativeIndex).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testEmptyImage() throws IOException, ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    givenFetchedImage();
+    givenImageHeader(3000, 3000, "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(null);
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ImageRejectedException.class);
+  }
+
+  @Test
+  void testUnsupportedImage() throws IOException, ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    givenFetchedImage();
+    given(imageDecoder.readHeader(SPOOL_FILE)).willReturn(null);
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ImageRejectedException.class);
+    then(s3Repository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testUnsupportedImageIsNotFetchedAgain() throws IOException, ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    givenFetchedImage();
+    given(imageDecoder.readHeader(SPOOL_FILE)).willReturn(null);
+    processingService.handleMessage(media);
+
+    // When
+    var result = processingService.handleMessage(media);
+
+    // Then
+    assertThat(result).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ImageRejectedException.class);
+    then(imageFetcher).should(times(1)).fetch(ACCESS_URI);
+  }
+
+  @Test
+  void testDecompressionBomb() throws IOException, ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    givenFetchedImage();
+    givenImageHeader(30000, 20000, "YCbCr");
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ImageRejectedException.class);
+    then(imageDecoder).should(never()).decode(any(Path.class), anyFloat());
+    then(s3Repository).shouldHaveNoInteractions();
+  }
+
+  @Test
+  void testHandleMessagePassThrough() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 400f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    given(s3Repository.uploadOriginalAsync(SPOOL_FILE, "https://doi.org/TEST/WKT-SQB-ZNC",
+        properties.getDerivativeProfiles().get(0),
+        new ImageHeader("image/jpeg", image.getWidth(), image.getHeight(), 3, "YCbCr")))
+        .willReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+    givenUploads();
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(s3Repository).should()
+        .uploadResultsAsync(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(1)), any(ImageHeader.class));
+    then(s3Repository).should(never())
+        .uploadResultsAsync(any(BufferedImage.class), anyString(),
+            eq(properties.getDerivativeProfiles().get(0)), any(ImageHeader.class));
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(
+        givenDigitalMediaWithDerivativeEvent(1920, 1795, 1920, 1795, 400, 373));
+    assertThat(imageCaptor.getValue().getWidth()).isEqualTo(400);
+  }
+
+  @Test
+  void testHandleMessageCmykIsNotPassedThrough() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-1.jpeg").getPath()));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "CMYK");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(s3Repository).should()
+        .uploadResultsAsync(any(BufferedImage.class), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(properties.getDerivativeProfiles().get(0)), any(ImageHeader.class));
+    then(s3Repository).should(never())
+        .uploadOriginalAsync(any(Path.class), anyString(), any(DerivativeProfile.class),
+            any(ImageHeader.class));
+  }
+
+  @Test
+  void testHandleMessageAdditionalProfile() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    var previewProfile = DerivativeProfile.builder().name("Preview").maxSize(1024f)
+        .format("png").suffix("preview").build();
+    properties.setDerivativeProfiles(List.of(properties.getDerivativeProfiles().get(1),
+        previewProfile, properties.getDerivativeProfiles().get(0)));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(s3Repository).should()
+        .uploadResultsAsync(imageCaptor.capture(), eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+            eq(previewProfile), any(ImageHeader.class));
+    assertThat(imageCaptor.getValue().getWidth()).isEqualTo(1024);
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(eventCaptor.capture());
+    var derivatives = eventCaptor.getValue().digitalMediaWrapper().attributes()
+        .getOdsHasMediaDerivatives();
+    assertThat(derivatives).hasSize(3);
+    assertThat(derivatives.get(0).getExifPixelXDimension()).isEqualTo(400);
+    assertThat(derivatives.get(1).getAcAccessURI()).isEqualTo(
+        "https://dev.dissco.tech/api/dm/v1/TEST/WKT-SQB-ZNC/preview");
+    assertThat(derivatives.get(1).getDctermsFormat()).isEqualTo("image/png");
+    assertThat(derivatives.get(2).getExifPixelXDimension()).isEqualTo(2048);
+  }
+
+  @Test
+  void testUploadFailed() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    willThrow(S3UploadException.class).given(s3Repository).awaitUploads(anyList());
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(S3UploadException.class);
+    then(rabbitMqPublisherService).shouldHaveNoInteractions();
+    then(derivativeIndex).should(never()).addDerivatives(anyString());
+  }
+
+  @Test
+  void testPublishNotConfirmed() throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
+    var image = ImageIO.read(new File(
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    given(rabbitMqPublisherService.publishDigitalMediaEvent(any(DigitalMediaEvent.class)))
+        .willReturn(CompletableFuture.failedFuture(new PublishFailedException("Nacked")));
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(PublishFailedException.class);
+    then(s3Repository).should().awaitUploads(anyList());
+  }
+
+  @Test
+  void testHandleMessageStoredDerivatives() throws ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    given(derivativeIndex.mightHaveDerivatives("https://doi.org/TEST/WKT-SQB-ZNC")).willReturn(true);
+    given(s3Repository.findDerivativeAsync("https://doi.org/TEST/WKT-SQB-ZNC",
+        properties.getDerivativeProfiles().get(0))).willReturn(
+        CompletableFuture.completedFuture(new StoredDerivative(1920, 1795, 1920, 1795)));
+    given(s3Repository.findDerivativeAsync("https://doi.org/TEST/WKT-SQB-ZNC",
+        properties.getDerivativeProfiles().get(1))).willReturn(
+        CompletableFuture.completedFuture(new StoredDerivative(400, 373, 1920, 1795)));
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(imageFetcher).shouldHaveNoInteractions();
+    then(s3Repository).should(never()).awaitUploads(anyList());
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(
+        givenDigitalMediaWithDerivativeEvent(1920, 1795, 1920, 1795, 400, 373));
+  }
+
   @Test
-  void testEmptyImage() throws IOException {
+  void testHandleMessageStoredDerivativesHandedOff() {
     // Given
-    var event = getCreateUpdateTombstoneEvent();
+    var media = givenDigitalMedia();
+    var handedOff = new AtomicInteger();
+    var processingService = new ProcessingService(properties, s3Repository,
+        rabbitMqPublisherService, imageFetcher,
+        new HostScheduler(new ImageFetchProperties(), new CircuitBreakerProperties(),
+            new SimpleMeterRegistry()),
+        new NegativeCache(new NegativeCacheProperties(), new SimpleMeterRegistry()),
+        derivativeIndex, imageDecoder,
+        new HeapBudgetComponent(new HeapBudgetProperties()),
+        new RasterPool(new BufferPoolProperties(), new SimpleMeterRegistry()),
+        new ProcessingPipeline(PipelineStage.DIRECT, PipelineStage.DIRECT, PipelineStage.DIRECT,
+            task -> {
+              handedOff.incrementAndGet();
+              task.run();
+            }),
+        new ResamplerRegistry(List.of(new AreaAveragingResampler())),
+        new ImageEncoderRegistry(List.of(new JpegEncoder())));
+    given(derivativeIndex.mightHaveDerivatives("https://doi.org/TEST/WKT-SQB-ZNC")).willReturn(true);
+    given(s3Repository.findDerivativeAsync(eq("https://doi.org/TEST/WKT-SQB-ZNC"),
+        any(DerivativeProfile.class))).willReturn(
+        CompletableFuture.completedFuture(new StoredDerivative(400, 373, 1920, 1795)));
+    givenPublish();
+
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    assertThat(handedOff).hasValue(1);
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(any());
+  }
+
+  @ParameterizedTest
+  @MethodSource("unusableStoredDerivativeProvider")
+  void testHandleMessageUnusableStoredDerivative(StoredDerivative storedDerivative)
+      throws ProcessingFailedException, IOException {
+    // Given
+    var media = givenDigitalMedia();
     var image = ImageIO.read(new File(
-        new ClassPathResource("src/test/resources/test-images/test-iiif.json").getPath()));
-    try (MockedStatic<ImageIO> utilities = Mockito.mockStatic(ImageIO.class)) {
-      utilities.when(() -> ImageIO.read(
-          URI.create("https://medialib.naturalis.nl/file/id/RMNH.INS.1339663_1/format/large")
-              .toURL())).thenReturn(image);
+        new ClassPathResource("src/test/resources/test-images/test-image-4.jpeg").getPath()));
+    given(derivativeIndex.mightHaveDerivatives("https://doi.org/TEST/WKT-SQB-ZNC")).willReturn(true);
+    given(s3Repository.findDerivativeAsync("https://doi.org/TEST/WKT-SQB-ZNC",
+        properties.getDerivativeProfiles().get(0))).willReturn(
+        CompletableFuture.completedFuture(new StoredDerivative(2048, 2048, 3000, 3000)));
+    given(s3Repository.findDerivativeAsync("https://doi.org/TEST/WKT-SQB-ZNC",
+        properties.getDerivativeProfiles().get(1))).willReturn(
+        CompletableFuture.completedFuture(storedDerivative));
+    givenFetchedImage();
+    givenImageHeader(image.getWidth(), image.getHeight(), "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willReturn(
+        new DecodedImage(image, image.getWidth(), image.getHeight()));
+    givenUploads();
+    givenPublish();
 
-      // When / Then
-      assertThrows(ProcessingFailedException.class, () -> processingService.handleMessage(event));
-    }
+    // When
+    processingService.handleMessage(media).join();
+
+    // Then
+    then(imageFetcher).should().fetch(ACCESS_URI);
+    then(rabbitMqPublisherService).should().publishDigitalMediaEvent(
+        givenDigitalMediaWithDerivativeEvent(3000, 3000, 2048, 2048, 400, 400));
+  }
+
+  @Test
+  void testFetchFailed() throws ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    given(imageFetcher.fetch(ACCESS_URI)).willThrow(ProcessingFailedException.class);
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ProcessingFailedException.class);
+    then(s3Repository).shouldHaveNoInteractions();
   }
 
   @Test
-  void testIOExceptionImage() {
+  void testFetchNotFoundIsNotFetchedAgain() throws ProcessingFailedException {
     // Given
-    var event = getCreateUpdateTombstoneEvent();
-    try (MockedStatic<ImageIO> utilities = Mockito.mockStatic(ImageIO.class)) {
-      utilities.when(() -> ImageIO.read(
-          URI.create("https://medialib.naturalis.nl/file/id/RMNH.INS.1339663_1/format/large")
-              .toURL())).thenThrow(IOException.class);
+    var media = givenDigitalMedia();
+    given(imageFetcher.fetch(ACCESS_URI)).willThrow(new ImageNotFoundException("Not found"));
+    processingService.handleMessage(media);
 
-      // When / Then
-      assertThrows(ProcessingFailedException.class, () -> processingService.handleMessage(event));
-    }
+    // When
+    var result = processingService.handleMessage(media);
+
+    // Then
+    assertThat(result).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ImageRejectedException.class);
+    then(imageFetcher).should(times(1)).fetch(ACCESS_URI);
+  }
+
+  @Test
+  void testIOExceptionImage() throws IOException, ProcessingFailedException {
+    // Given
+    var media = givenDigitalMedia();
+    givenFetchedImage();
+    givenImageHeader(3000, 3000, "YCbCr");
+    given(imageDecoder.decode(SPOOL_FILE, 2048f)).willThrow(IOException.class);
+
+    // When / Then
+    assertThat(processingService.handleMessage(media)).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class).withCauseInstanceOf(ProcessingFailedException.class);
   }
 }
@@ -1,40 +1,259 @@
 package eu.dissco.core.digitalmediaderivativeservice.service;
 
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER;
-import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.getCreateUpdateTombstoneEvent;
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMedia;
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenProvenanceEventJson;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 
+import com.rabbitmq.client.Channel;
+import eu.dissco.core.digitalmediaderivativeservice.codec.GzipCodec;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodecRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.component.MessageCompressionComponent;
+import eu.dissco.core.digitalmediaderivativeservice.component.ProvenanceEventReader;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ImageRejectedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.InvalidEventException;
 import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 
 @ExtendWith(MockitoExtension.class)
 class RabbitMqConsumerServiceTest {
 
+  private static final String TOMBSTONE_EVENT = """
+      {"@id": "https://doi.org/TEST/AAA-AAA-AAA/2", "prov:Activity": {"@type": "ods:Tombstone"}}
+      """;
+  // Messages are acknowledged asynchronously, as soon as they are done
+  private static final long TIMEOUT = 1000L;
+
   @Mock
   private ProcessingService processingService;
+  @Mock
+  private RabbitMqRetryService retryService;
+  @Mock
+  private Channel channel;
 
   private RabbitMqConsumerService rabbitMqConsumerService;
 
   @BeforeEach
   void setup() {
-    this.rabbitMqConsumerService = new RabbitMqConsumerService(MAPPER, processingService);
+    this.rabbitMqConsumerService = new RabbitMqConsumerService(
+        new ProvenanceEventReader(MAPPER), processingService,
+        new MessageCompressionComponent(new MessageCompressionProperties(),
+            new MessageCodecRegistry(List.of(
+                new GzipCodec(new PipelineProperties(), new RabbitMqProperties()))),
+            new PipelineProperties(), MAPPER),
+        retryService);
+  }
+
+  @AfterEach
+  void destroy() throws InterruptedException {
+    rabbitMqConsumerService.shutdown();
+  }
+
+  @Test
+  void testGetMessages() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L),
+        givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 2L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(CompletableFuture.completedFuture(null));
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(processingService).should(times(2))
+        .handleMessage(givenDigitalMedia());
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+    then(channel).should(timeout(TIMEOUT)).basicAck(2L, false);
+  }
+
+  @Test
+  void testGetMessagesAcknowledgedIndependently() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L),
+        givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 2L),
+        givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 3L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(new CompletableFuture<>(), CompletableFuture.completedFuture(null));
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(channel).should(timeout(TIMEOUT)).basicAck(2L, false);
+    then(channel).should(timeout(TIMEOUT)).basicAck(3L, false);
+    then(channel).should(never()).basicAck(1L, false);
+    then(channel).should(never()).basicNack(1L, false, true);
+  }
+
+  @Test
+  void testGetMessagesProcessingFailed() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L),
+        givenMessage(TOMBSTONE_EVENT, 2L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(CompletableFuture.failedFuture(new ProcessingFailedException()));
+    givenRetried();
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(retryService).should().retry(eq(messages.getFirst()), any(ProcessingFailedException.class));
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+    then(channel).should(timeout(TIMEOUT)).basicAck(2L, false);
+  }
+
+  @Test
+  void testGetMessagesRetryFailed() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(CompletableFuture.failedFuture(new ProcessingFailedException()));
+    willThrow(AmqpConnectException.class).given(retryService).retry(any(), any());
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(channel).should(timeout(TIMEOUT)).basicNack(1L, false, true);
+  }
+
+  @Test
+  void testGetMessagesImageRejected() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(CompletableFuture.failedFuture(new ImageRejectedException(
+            "Image at https://example.org/image.jpg exceeds the maximum size")));
+    givenDeadLettered();
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(retryService).should().deadLetter(eq(messages.getFirst()),
+        any(ImageRejectedException.class));
+    then(retryService).should(never()).retry(any(), any());
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+  }
+
+  @Test
+  void testGetMessagesUnexpectedError() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willThrow(NullPointerException.class);
+    givenRetried();
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(retryService).should().retry(eq(messages.getFirst()), any(NullPointerException.class));
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
   }
 
   @Test
-  void testGetMessage() throws ProcessingFailedException {
+  void testGetMessagesNonCreateEvent() throws IOException {
     // Given
-    var message = MAPPER.writeValueAsString(givenProvenanceEventJson());
+    var messages = List.of(givenMessage(TOMBSTONE_EVENT, 1L));
 
-    // When / Then
-    rabbitMqConsumerService.getMessage(message);
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
 
     // Then
-    then(processingService).should().handleMessage(getCreateUpdateTombstoneEvent());
+    then(processingService).shouldHaveNoInteractions();
+    then(retryService).shouldHaveNoInteractions();
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+  }
+
+  @Test
+  void testGetMessagesInvalidEvent() throws IOException {
+    // Given
+    var messages = List.of(givenMessage("{\"@id\": \"https://doi.org/TEST/AAA-AAA-AAA\"}", 1L));
+    givenDeadLettered();
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(processingService).shouldHaveNoInteractions();
+    then(retryService).should().deadLetter(eq(messages.getFirst()),
+        any(InvalidEventException.class));
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+  }
+
+  @Test
+  void testGetMessagesInvalidJson() throws IOException {
+    // Given
+    var messages = List.of(givenMessage("{invalid json", 1L));
+    givenDeadLettered();
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(processingService).shouldHaveNoInteractions();
+    then(retryService).should().deadLetter(eq(messages.getFirst()), any());
+    then(retryService).should(never()).retry(any(), any());
+    then(channel).should(timeout(TIMEOUT)).basicAck(1L, false);
+  }
+
+  @Test
+  void testGetMessagesForwardNotConfirmed() throws IOException {
+    // Given
+    var messages = List.of(givenMessage(MAPPER.writeValueAsString(givenProvenanceEventJson()), 1L));
+    given(processingService.handleMessage(givenDigitalMedia()))
+        .willReturn(CompletableFuture.failedFuture(new ProcessingFailedException()));
+    given(retryService.retry(any(), any())).willReturn(
+        CompletableFuture.failedFuture(new PublishFailedException("Nacked")));
+
+    // When
+    rabbitMqConsumerService.getMessages(messages, channel);
+
+    // Then
+    then(channel).should(timeout(TIMEOUT)).basicNack(1L, false, true);
+    then(channel).should(never()).basicAck(1L, false);
+  }
+
+  private void givenRetried() {
+    given(retryService.retry(any(), any())).willReturn(CompletableFuture.completedFuture(null));
+  }
+
+  private void givenDeadLettered() {
+    given(retryService.deadLetter(any(), any()))
+        .willReturn(CompletableFuture.completedFuture(null));
+  }
+
+  private static Message givenMessage(String body, long deliveryTag) {
+    var messageProperties = new MessageProperties();
+    messageProperties.setContentType("application/json");
+    messageProperties.setDeliveryTag(deliveryTag);
+    return new Message(body.getBytes(StandardCharsets.UTF_8), messageProperties);
   }
 
-}
\ No newline at end of file
+}
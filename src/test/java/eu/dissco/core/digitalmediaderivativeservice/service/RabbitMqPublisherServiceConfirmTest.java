@@ -0,0 +1,197 @@
+package eu.dissco.core.digitalmediaderivativeservice.service;
+
+import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+
+import eu.dissco.core.digitalmediaderivativeservice.domain.DigitalMediaEvent;
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.core.RabbitOperations.OperationsCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMqPublisherServiceConfirmTest {
+
+  private static final String EXCHANGE = "digital-media-exchange";
+  private static final String ROUTING_KEY = "digital-media";
+
+  @Mock
+  private RabbitTemplate rabbitTemplate;
+  @Mock
+  private ConnectionFactory connectionFactory;
+  @Captor
+  private ArgumentCaptor<CorrelationData> correlationCaptor;
+
+  private RabbitMqProperties properties;
+  private RabbitMqPublisherService rabbitMqPublisherService;
+
+  @BeforeEach
+  void setup() {
+    properties = new RabbitMqProperties();
+    given(rabbitTemplate.getConnectionFactory()).willReturn(connectionFactory);
+  }
+
+  @AfterEach
+  void destroy() {
+    if (rabbitMqPublisherService != null) {
+      rabbitMqPublisherService.shutdown();
+    }
+  }
+
+  private void givenPublisher(boolean confirms) {
+    given(connectionFactory.isPublisherConfirms()).willReturn(confirms);
+    rabbitMqPublisherService = new RabbitMqPublisherService(rabbitTemplate, properties);
+  }
+
+  private void givenChannel() {
+    given(rabbitTemplate.invoke(any())).willAnswer(
+        invocation -> invocation.getArgument(0, OperationsCallback.class)
+            .doInRabbit(rabbitTemplate));
+  }
+
+  private CorrelationData sentCorrelation() {
+    then(rabbitTemplate).should().convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY),
+        any(DigitalMediaEvent.class), correlationCaptor.capture());
+    return correlationCaptor.getValue();
+  }
+
+  @Test
+  void testPublishConfirmed() {
+    // Given
+    givenPublisher(true);
+    givenChannel();
+
+    // When
+    var result = rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+
+    // Then
+    assertThat(result).isNotDone();
+    sentCorrelation().getFuture().complete(new Confirm(true, null));
+    assertThat(result).isCompleted().isNotCompletedExceptionally();
+  }
+
+  @Test
+  void testPublishNacked() {
+    // Given
+    givenPublisher(true);
+    givenChannel();
+
+    // When
+    var result = rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+    sentCorrelation().getFuture().complete(new Confirm(false, "Queue full"));
+
+    // Then
+    assertPublishFailed(result);
+  }
+
+  @Test
+  void testPublishReturned() {
+    // Given
+    givenPublisher(true);
+    givenChannel();
+
+    // When
+    var result = rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+    var correlation = sentCorrelation();
+    correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+        312, "NO_ROUTE", EXCHANGE, ROUTING_KEY));
+    correlation.getFuture().complete(new Confirm(true, null));
+
+    // Then
+    assertPublishFailed(result);
+  }
+
+  @Test
+  void testPublishConfirmTimeout() {
+    // Given
+    properties.setPublisherConfirmTimeout(Duration.ofMillis(10));
+    givenPublisher(true);
+    givenChannel();
+
+    // When
+    var result = rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+
+    // Then
+    assertThat(result).failsWithin(Duration.ofSeconds(5))
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(PublishFailedException.class);
+  }
+
+  @Test
+  void testPublishBatch() {
+    // Given
+    properties.setPublishLinger(Duration.ofMinutes(1));
+    properties.setPublishBatchSize(2);
+    givenPublisher(true);
+    givenChannel();
+    rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+    then(rabbitTemplate).should(never()).invoke(any());
+
+    // When
+    rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+
+    // Then
+    then(rabbitTemplate).should().invoke(any());
+    then(rabbitTemplate).should(times(2)).convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY),
+        any(DigitalMediaEvent.class), any(CorrelationData.class));
+  }
+
+  @Test
+  void testPublishAfterLinger() {
+    // Given
+    properties.setPublishLinger(Duration.ofMillis(50));
+    givenPublisher(true);
+    givenChannel();
+
+    // When
+    rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+
+    // Then
+    then(rabbitTemplate).should(timeout(5000)).convertAndSend(eq(EXCHANGE), eq(ROUTING_KEY),
+        any(DigitalMediaEvent.class), any(CorrelationData.class));
+  }
+
+  @Test
+  void testPublishWithoutConfirms() {
+    // Given
+    givenPublisher(false);
+
+    // When
+    var result = rabbitMqPublisherService.publishDigitalMediaEvent(givenDigitalMediaEvent());
+
+    // Then
+    assertThat(result).isCompleted();
+    then(rabbitTemplate).should().convertAndSend(EXCHANGE, ROUTING_KEY, givenDigitalMediaEvent());
+  }
+
+  private static void assertPublishFailed(CompletableFuture<Void> result) {
+    assertThat(result).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(PublishFailedException.class);
+  }
+
+}
@@ -4,8 +4,14 @@ import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.MAPPER
 import static eu.dissco.core.digitalmediaderivativeservice.util.TestUtils.givenDigitalMediaEvent;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.dissco.core.digitalmediaderivativeservice.codec.GzipCodec;
+import eu.dissco.core.digitalmediaderivativeservice.codec.MessageCodecRegistry;
+import eu.dissco.core.digitalmediaderivativeservice.component.MessageCompressionComponent;
+import eu.dissco.core.digitalmediaderivativeservice.property.MessageCompressionProperties;
+import eu.dissco.core.digitalmediaderivativeservice.property.PipelineProperties;
 import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
 import java.io.IOException;
+import java.util.List;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -41,6 +47,10 @@ class RabbitMqPublisherServiceTest {
     factory.setUsername(container.getAdminUsername());
     factory.setPassword(container.getAdminPassword());
     rabbitTemplate = new RabbitTemplate(factory);
+    rabbitTemplate.setMessageConverter(new MessageCompressionComponent(
+        new MessageCompressionProperties(), new MessageCodecRegistry(
+        List.of(new GzipCodec(new PipelineProperties(), new RabbitMqProperties()))),
+        new PipelineProperties(), MAPPER));
     rabbitTemplate.setReceiveTimeout(100L);
   }
 
@@ -51,7 +61,7 @@ class RabbitMqPublisherServiceTest {
 
   @BeforeEach
   void setup() {
-    rabbitMqPublisherService = new RabbitMqPublisherService(MAPPER, rabbitTemplate,
+    rabbitMqPublisherService = new RabbitMqPublisherService(rabbitTemplate,
         new RabbitMqProperties());
   }
 
@@ -64,6 +74,7 @@ class RabbitMqPublisherServiceTest {
 
     // Then
     var message = rabbitTemplate.receive("digital-media-queue");
-    assertThat(new String(message.getBody())).isNotNull();
+    assertThat(rabbitTemplate.getMessageConverter().fromMessage(message))
+        .isEqualTo(MAPPER.writeValueAsString(givenDigitalMediaEvent()));
   }
 }
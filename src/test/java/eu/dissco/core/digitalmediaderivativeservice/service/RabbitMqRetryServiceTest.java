@@ -0,0 +1,283 @@
+package eu.dissco.core.digitalmediaderivativeservice.service;
+
+import static eu.dissco.core.digitalmediaderivativeservice.service.RabbitMqRetryService.RETRY_COUNT_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.then;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.springframework.amqp.rabbit.retry.RepublishMessageRecoverer.X_EXCEPTION_MESSAGE;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Envelope;
+import com.rabbitmq.client.GetResponse;
+import eu.dissco.core.digitalmediaderivativeservice.exception.ProcessingFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.exception.PublishFailedException;
+import eu.dissco.core.digitalmediaderivativeservice.property.RabbitMqProperties;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.connection.CorrelationData.Confirm;
+import org.springframework.amqp.rabbit.core.ChannelCallback;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class RabbitMqRetryServiceTest {
+
+  private static final String DEAD_LETTER_QUEUE = "digital-media-derivative-dlq";
+  private static final byte[] BODY = "{}".getBytes(StandardCharsets.UTF_8);
+
+  @Mock
+  private RabbitTemplate rabbitTemplate;
+  @Mock
+  private Channel channel;
+  @Mock
+  private ConnectionFactory connectionFactory;
+  @Captor
+  private ArgumentCaptor<Message> messageCaptor;
+  @Captor
+  private ArgumentCaptor<CorrelationData> correlationCaptor;
+
+  private RabbitMqRetryService retryService;
+
+  @BeforeEach
+  void setup() {
+    given(rabbitTemplate.getConnectionFactory()).willReturn(connectionFactory);
+  }
+
+  private void givenRetryService(boolean confirms) {
+    given(connectionFactory.isPublisherConfirms()).willReturn(confirms);
+    retryService = new RabbitMqRetryService(rabbitTemplate, new RabbitMqProperties());
+  }
+
+  @Test
+  void testRetry() {
+    // Given
+    givenRetryService(false);
+    var message = givenMessage(null);
+
+    // When
+    var result = retryService.retry(message, new ProcessingFailedException("Failed"));
+
+    // Then
+    assertThat(result).isCompleted();
+    then(rabbitTemplate).should().send("", "digital-media-derivative-queue-retry-30s", message);
+    assertThat((Integer) message.getMessageProperties().getHeader(RETRY_COUNT_HEADER))
+        .isEqualTo(1);
+  }
+
+  @Test
+  void testRetryNextDelay() {
+    // Given
+    givenRetryService(false);
+    var message = givenMessage(1L);
+
+    // When
+    retryService.retry(message, new ProcessingFailedException("Failed"));
+
+    // Then
+    then(rabbitTemplate).should().send("", "digital-media-derivative-queue-retry-300s", message);
+    assertThat((Integer) message.getMessageProperties().getHeader(RETRY_COUNT_HEADER))
+        .isEqualTo(2);
+  }
+
+  @Test
+  void testRetryExhausted() {
+    // Given
+    givenRetryService(false);
+    var message = givenMessage(3);
+
+    // When
+    retryService.retry(message, new ProcessingFailedException("Failed"));
+
+    // Then
+    then(rabbitTemplate).should().send("", DEAD_LETTER_QUEUE, message);
+    assertThat((String) message.getMessageProperties().getHeader(X_EXCEPTION_MESSAGE))
+        .contains("Failed");
+  }
+
+  @Test
+  void testReplay() throws IOException {
+    // Given
+    givenRetryService(false);
+    givenDeadLetteredMessages(2);
+
+    // When
+    var replayed = retryService.replay(10);
+
+    // Then
+    assertThat(replayed).isEqualTo(2);
+    then(channel).should().queueDeclarePassive("digital-media-derivative-queue");
+    then(rabbitTemplate).should(times(2)).send(eq(""), eq("digital-media-derivative-queue"),
+        messageCaptor.capture());
+    assertThat(messageCaptor.getValue().getBody()).isEqualTo(BODY);
+    assertThat(messageCaptor.getValue().getMessageProperties().getHeaders())
+        .isEqualTo(Map.of("other", "value"));
+    then(channel).should().basicAck(1L, false);
+    then(channel).should().basicAck(2L, false);
+  }
+
+  @Test
+  void testReplayLimit() throws IOException {
+    // Given
+    givenRetryService(false);
+    givenDeadLetteredMessages(2);
+
+    // When
+    var replayed = retryService.replay(1);
+
+    // Then
+    assertThat(replayed).isEqualTo(1);
+    then(channel).should().queueDeclarePassive("digital-media-derivative-queue");
+    then(channel).should().basicGet(DEAD_LETTER_QUEUE, false);
+    then(channel).should().basicAck(1L, false);
+    then(channel).shouldHaveNoMoreInteractions();
+  }
+
+  @Test
+  void testRetryConfirmed() {
+    // Given
+    givenRetryService(true);
+    var message = givenMessage(null);
+
+    // When
+    var result = retryService.retry(message, new ProcessingFailedException("Failed"));
+
+    // Then
+    then(rabbitTemplate).should().send(eq(""), eq("digital-media-derivative-queue-retry-30s"),
+        eq(message), correlationCaptor.capture());
+    assertThat(result).isNotDone();
+    correlationCaptor.getValue().getFuture().complete(new Confirm(true, null));
+    assertThat(result).isCompleted();
+  }
+
+  @Test
+  void testDeadLetterNacked() {
+    // Given
+    givenRetryService(true);
+    var message = givenMessage(null);
+
+    // When
+    var result = retryService.deadLetter(message, new ProcessingFailedException("Failed"));
+    then(rabbitTemplate).should().send(eq(""), eq(DEAD_LETTER_QUEUE), eq(message),
+        correlationCaptor.capture());
+    correlationCaptor.getValue().getFuture().complete(new Confirm(false, "Queue full"));
+
+    // Then
+    assertThat(result).failsWithin(Duration.ZERO)
+        .withThrowableOfType(ExecutionException.class)
+        .withCauseInstanceOf(PublishFailedException.class);
+  }
+
+  @Test
+  void testReplayConfirmed() throws IOException {
+    // Given
+    givenRetryService(true);
+    givenDeadLetteredMessages(1);
+    givenConfirm(correlation -> correlation.getFuture().complete(new Confirm(true, null)));
+
+    // When
+    var replayed = retryService.replay(10);
+
+    // Then
+    assertThat(replayed).isEqualTo(1);
+    var inOrder = inOrder(rabbitTemplate, channel);
+    inOrder.verify(rabbitTemplate).send(eq(""), eq("digital-media-derivative-queue"),
+        any(Message.class), any(CorrelationData.class));
+    inOrder.verify(channel).basicAck(1L, false);
+  }
+
+  @Test
+  void testReplayNacked() throws IOException {
+    // Given
+    givenRetryService(true);
+    givenDeadLetteredMessages(1);
+    givenConfirm(correlation -> correlation.getFuture().complete(new Confirm(false, "Queue full")));
+
+    // When
+    var replayed = retryService.replay(10);
+
+    // Then
+    assertThat(replayed).isZero();
+    then(channel).should().basicNack(1L, false, true);
+    then(channel).should(never()).basicAck(anyLong(), anyBoolean());
+  }
+
+  @Test
+  void testReplayUnroutable() throws IOException {
+    // Given
+    givenRetryService(true);
+    givenDeadLetteredMessages(2);
+    givenConfirm(correlation -> {
+      correlation.setReturned(new ReturnedMessage(new Message(BODY), 312, "NO_ROUTE", "",
+          "digital-media-derivative-queue"));
+      correlation.getFuture().complete(new Confirm(true, null));
+    });
+
+    // When
+    var replayed = retryService.replay(10);
+
+    // Then
+    assertThat(replayed).isZero();
+    then(channel).should().basicNack(1L, false, true);
+    then(channel).should().basicNack(2L, false, true);
+    then(channel).should(never()).basicAck(anyLong(), anyBoolean());
+  }
+
+  private void givenDeadLetteredMessages(int count) throws IOException {
+    given(rabbitTemplate.execute(any())).willAnswer(
+        invocation -> invocation.<ChannelCallback<?>>getArgument(0).doInRabbit(channel));
+    var properties = new BasicProperties.Builder()
+        .headers(Map.of(RETRY_COUNT_HEADER, 3, X_EXCEPTION_MESSAGE, "Failed", "other", "value"))
+        .build();
+    var responses = new GetResponse[count];
+    for (var i = 0; i < count; i++) {
+      responses[i] = new GetResponse(new Envelope(i + 1L, false, "", DEAD_LETTER_QUEUE),
+          properties, BODY, count - i - 1);
+    }
+    given(channel.basicGet(DEAD_LETTER_QUEUE, false))
+        .willReturn(responses[0], Arrays.copyOfRange(responses, 1, count + 1));
+  }
+
+  private void givenConfirm(Consumer<CorrelationData> confirm) {
+    willAnswer(invocation -> {
+      confirm.accept(invocation.getArgument(3));
+      return null;
+    }).given(rabbitTemplate).send(anyString(), anyString(), any(Message.class),
+        any(CorrelationData.class));
+  }
+
+  private static Message givenMessage(Object retryCount) {
+    var messageProperties = new MessageProperties();
+    messageProperties.setContentType("application/json");
+    if (retryCount != null) {
+      messageProperties.setHeader(RETRY_COUNT_HEADER, retryCount);
+    }
+    return new Message("{}".getBytes(StandardCharsets.UTF_8), messageProperties);
+  }
+
+}
@@ -0,0 +1,136 @@
+package eu.dissco.core.digitalmediaderivativeservice.resampler;
+
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.PRECISION_BITS;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.ROUNDING;
+import static eu.dissco.core.digitalmediaderivativeservice.resampler.Contributions.clamp;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Runs the passes with the Vector API. The vertical pass accumulates a full vector of bytes of
+ * the row at once, widened to four vectors of ints. The taps of the horizontal pass are not
+ * contiguous, so strips of rows are transposed, filtered with the vertical kernel and transposed
+ * back.
+ */
+class VectorFilterKernel implements FilterKernel {
+
+  private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+  // Same shape, so a vector of bytes widens to exactly four vectors of ints
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  // Rows that are transposed at once, the transposed strip has rows of STRIP_ROWS pixels
+  private static final int STRIP_ROWS = 64;
+
+  @Override
+  public void horizontalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow) {
+    if (fromRow >= toRow) {
+      return;
+    }
+    var stripRows = Math.min(STRIP_ROWS, toRow - fromRow);
+    var channels = source.channels();
+    var transposed = new byte[source.width() * stripRows * channels];
+    var filtered = new byte[target.width() * stripRows * channels];
+    for (int y = fromRow; y < toRow; y += stripRows) {
+      var rows = Math.min(stripRows, toRow - y);
+      transpose(source.data(), source.width(), channels, y, rows, transposed);
+      filter(transposed, filtered, rows * channels, contributions, 0, target.width());
+      transposeBack(filtered, target.data(), target.width(), channels, y, rows);
+    }
+  }
+
+  @Override
+  public void verticalPass(PixelBuffer source, PixelBuffer target, Contributions contributions,
+      int fromRow, int toRow) {
+    filter(source.data(), target.data(), target.width() * target.channels(), contributions,
+        fromRow, toRow);
+  }
+
+  private static void filter(byte[] source, byte[] target, int rowLength,
+      Contributions contributions, int fromRow, int toRow) {
+    var weights = contributions.weights();
+    var maxLength = contributions.maxLength();
+    var bound = BYTES.loopBound(rowLength);
+    for (int y = fromRow; y < toRow; y++) {
+      var start = contributions.start()[y] * rowLength;
+      var length = contributions.length()[y];
+      var weightOffset = y * maxLength;
+      var targetOffset = y * rowLength;
+      var i = 0;
+      for (; i < bound; i += BYTES.length()) {
+        var sum0 = IntVector.broadcast(INTS, ROUNDING);
+        var sum1 = sum0;
+        var sum2 = sum0;
+        var sum3 = sum0;
+        var offset = start + i;
+        for (int k = 0; k < length; k++) {
+          var weight = weights[weightOffset + k];
+          var bytes = ByteVector.fromArray(BYTES, source, offset);
+          sum0 = sum0.add(widen(bytes, 0).mul(weight));
+          sum1 = sum1.add(widen(bytes, 1).mul(weight));
+          sum2 = sum2.add(widen(bytes, 2).mul(weight));
+          sum3 = sum3.add(widen(bytes, 3).mul(weight));
+          offset += rowLength;
+        }
+        narrow(sum0, 0).or(narrow(sum1, -1)).or(narrow(sum2, -2)).or(narrow(sum3, -3))
+            .intoArray(target, targetOffset + i);
+      }
+      for (; i < rowLength; i++) {
+        int value = ROUNDING;
+        var offset = start + i;
+        for (int k = 0; k < length; k++) {
+          value += (source[offset] & 0xFF) * weights[weightOffset + k];
+          offset += rowLength;
+        }
+        target[targetOffset + i] = (byte) clamp(value);
+      }
+    }
+  }
+
+  // The part of the bytes as unsigned ints
+  private static IntVector widen(ByteVector bytes, int part) {
+    return ((IntVector) bytes.convertShape(VectorOperators.B2I, INTS, part)).and(0xFF);
+  }
+
+  // The clamped ints in the given (non-positive) part of a vector of bytes, other lanes are zero
+  private static ByteVector narrow(IntVector sum, int part) {
+    return (ByteVector) sum.lanewise(VectorOperators.ASHR, PRECISION_BITS).max(0).min(255)
+        .convertShape(VectorOperators.I2B, BYTES, part);
+  }
+
+  // Column x of the rows fromRow up to fromRow + rows becomes row x of the target
+  private static void transpose(byte[] source, int width, int channels, int fromRow, int rows,
+      byte[] target) {
+    var rowLength = rows * channels;
+    for (int r = 0; r < rows; r++) {
+      var sourceOffset = (fromRow + r) * width * channels;
+      var targetOffset = r * channels;
+      for (int x = 0; x < width; x++) {
+        for (int c = 0; c < channels; c++) {
+          target[targetOffset + c] = source[sourceOffset + c];
+        }
+        sourceOffset += channels;
+        targetOffset += rowLength;
+      }
+    }
+  }
+
+  private static void transposeBack(byte[] source, byte[] target, int width, int channels,
+      int fromRow, int rows) {
+    var rowLength = rows * channels;
+    for (int r = 0; r < rows; r++) {
+      var sourceOffset = r * channels;
+      var targetOffset = (fromRow + r) * width * channels;
+      for (int x = 0; x < width; x++) {
+        for (int c = 0; c < channels; c++) {
+          target[targetOffset + c] = source[sourceOffset + c];
+        }
+        sourceOffset += rowLength;
+        targetOffset += channels;
+      }
+    }
+  }
+
+}